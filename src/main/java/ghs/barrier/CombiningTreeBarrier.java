@@ -0,0 +1,200 @@
+package ghs.barrier;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link RoundBarrier} built as a tree of small counters, so that no lock or memory location is shared by more than
+ * {@link #FAN_IN} parties.
+ *
+ * <p>Party {@code i} arrives at leaf {@code i / FAN_IN}. The last party to arrive at a node climbs to its parent, the
+ * others wait at the node; the last party to arrive at the root runs the action. Release travels back down the same
+ * way: every party that climbed through a node, once released above, opens the node for the parties waiting there and,
+ * with {@link WaitStrategy#PARK}, unparks them. Arrival and release both take {@code O(log parties)} steps, and the
+ * wake-ups of a round are spread over many threads instead of one {@code signalAll}.</p>
+ *
+ * <p>A node counts the parties that arrived in the current phase and holds the phase number. A party reads the phase
+ * before arriving; the last one resets the count and, once released, bumps the phase, which is what the others wait
+ * for. The count is updated atomically and the phase is volatile, so every write of a party before it arrives happens
+ * before the action and before every party leaves the barrier.</p>
+ *
+ * <p>A parked party publishes itself in the slot of its position at the node: its party number at a leaf, the child it
+ * climbed from above. Only one party can wait in a position at a time, since the parties of that position can't
+ * arrive in the next phase before the waiting one is released, so a party that is preempted before publishing itself
+ * never overwrites a waiter of a later phase.</p>
+ */
+public class CombiningTreeBarrier implements RoundBarrier {
+    static final int FAN_IN = 4;
+    private static final int SPINS = 100;   // checks before yielding or parking, if every party has a core
+    private static final VarHandle ARRIVED;
+    private static final VarHandle WAITERS = MethodHandles.arrayElementVarHandle(Thread[].class);
+
+    static {
+        try {
+            ARRIVED = MethodHandles.lookup().findVarHandle(Node.class, "arrived", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * A counter of the tree.
+     */
+    private static final class Node {
+        private Node parent;                // null for the root
+        private int position;               // of this node among the children of its parent
+        private final int parties;          // parties, or child nodes, that arrive here
+        private final Thread[] waiters;     // parked parties, by position
+        private int arrived;                // updated through ARRIVED
+        private volatile int phase;
+
+        Node(int parties) {
+            this.parties = parties;
+            this.waiters = new Thread[parties];
+        }
+    }
+
+    private final int parties;
+    private final Runnable action;
+    private final WaitStrategy strategy;
+    private final int spins;                // checks before yielding or parking
+    private final Node[] leaves;
+    private volatile boolean broken;
+
+    /**
+     * Creates a barrier.
+     *
+     * @param parties  number of parties
+     * @param action   runs once all parties have arrived, or null
+     * @param strategy how waiting parties wait
+     */
+    public CombiningTreeBarrier(int parties, Runnable action, WaitStrategy strategy) {
+        if (parties < 1) {
+            throw new IllegalArgumentException("A barrier needs at least one party, not " + parties);
+        }
+        this.parties = parties;
+        this.action = action;
+        this.strategy = strategy;
+        // with more parties than cores, the parties that are being waited for need the cores
+        this.spins = parties <= Runtime.getRuntime().availableProcessors() ? SPINS : 0;
+
+        // build the tree bottom up, the last node of a level may have fewer children
+        Node[] level = new Node[(parties + FAN_IN - 1) / FAN_IN];
+        for (int i = 0; i < level.length; i++) {
+            level[i] = new Node(Math.min(FAN_IN, parties - i * FAN_IN));
+        }
+        this.leaves = level;
+        while (level.length > 1) {
+            Node[] above = new Node[(level.length + FAN_IN - 1) / FAN_IN];
+            for (int i = 0; i < above.length; i++) {
+                above[i] = new Node(Math.min(FAN_IN, level.length - i * FAN_IN));
+            }
+            for (int i = 0; i < level.length; i++) {
+                level[i].parent = above[i / FAN_IN];
+                level[i].position = i % FAN_IN;
+            }
+            level = above;
+        }
+    }
+
+    @Override
+    public void await(int party) throws InterruptedException, BrokenBarrierException {
+        if (this.broken) {
+            throw new BrokenBarrierException();
+        }
+        arrive(this.leaves[party / FAN_IN], party % FAN_IN);
+    }
+
+    /**
+     * Arrives at a node and returns once the barrier has been released.
+     *
+     * @param node     the node
+     * @param position of the party, or of the child it climbed from, at the node
+     * @throws InterruptedException   if interrupted while waiting
+     * @throws BrokenBarrierException if the barrier gets broken while waiting
+     */
+    private void arrive(Node node, int position) throws InterruptedException, BrokenBarrierException {
+        int phase = node.phase;
+        int order = (int) ARRIVED.getAndAdd(node, 1);
+        if (order < node.parties - 1) {
+            waitForRelease(node, phase, position);
+            return;
+        }
+
+        // last to arrive, climb
+        ARRIVED.setVolatile(node, 0);
+        if (node.parent != null) {
+            arrive(node.parent, node.position);
+        } else if (this.action != null) {
+            try {
+                this.action.run();
+            } catch (RuntimeException | Error e) {
+                reset();
+                throw e;
+            }
+        }
+        node.phase = phase + 1;
+        if (this.strategy == WaitStrategy.PARK) {
+            for (int i = 0; i < node.parties; i++) {
+                Thread waiter = (Thread) WAITERS.getVolatile(node.waiters, i);
+                if (i != position && waiter != null) {
+                    LockSupport.unpark(waiter);
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits until a node moves past a phase.
+     *
+     * @param node  the node
+     * @param phase the phase the party arrived in
+     * @param position of the party at the node, see {@link #arrive(Node, int)}
+     * @throws InterruptedException   if interrupted while waiting
+     * @throws BrokenBarrierException if the barrier gets broken while waiting
+     */
+    private void waitForRelease(Node node, int phase, int position) throws InterruptedException, BrokenBarrierException {
+        for (int spins = 0; node.phase == phase; spins++) {
+            if (this.broken) {
+                throw new BrokenBarrierException();
+            }
+            if (this.strategy == WaitStrategy.SPIN || spins < this.spins) {
+                Thread.onSpinWait();
+            } else if (this.strategy == WaitStrategy.SPIN_YIELD) {
+                Thread.yield();
+            } else {
+                // publish myself before checking the phase again, the releaser bumps it before reading me
+                WAITERS.setVolatile(node.waiters, position, Thread.currentThread());
+                if (node.phase == phase && !this.broken) {
+                    LockSupport.park(this);
+                }
+                if (Thread.interrupted()) {
+                    reset();
+                    throw new InterruptedException();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        this.broken = true;
+        for (Node leaf : this.leaves) {
+            for (Node node = leaf; node != null; node = node.parent) {
+                for (int i = 0; i < node.parties; i++) {
+                    Thread waiter = (Thread) WAITERS.getVolatile(node.waiters, i);
+                    if (waiter != null) {
+                        LockSupport.unpark(waiter);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public int getParties() {
+        return this.parties;
+    }
+}
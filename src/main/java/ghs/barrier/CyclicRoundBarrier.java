@@ -0,0 +1,37 @@
+package ghs.barrier;
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * A {@link RoundBarrier} on a {@code CyclicBarrier}: one lock that every party takes and one condition every party
+ * waits on.
+ */
+public class CyclicRoundBarrier implements RoundBarrier {
+    private CyclicBarrier barrier;
+
+    /**
+     * Creates a barrier.
+     *
+     * @param parties number of parties
+     * @param action  runs once all parties have arrived, or null
+     */
+    public CyclicRoundBarrier(int parties, Runnable action) {
+        this.barrier = new CyclicBarrier(parties, action);
+    }
+
+    @Override
+    public void await(int party) throws InterruptedException, BrokenBarrierException {
+        this.barrier.await();
+    }
+
+    @Override
+    public void reset() {
+        this.barrier.reset();
+    }
+
+    @Override
+    public int getParties() {
+        return this.barrier.getParties();
+    }
+}
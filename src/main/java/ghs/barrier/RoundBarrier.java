@@ -0,0 +1,35 @@
+package ghs.barrier;
+
+import java.util.concurrent.BrokenBarrierException;
+
+/**
+ * A {@code RoundBarrier} lets a fixed number of parties wait for each other, over and over, and runs an action once all
+ * of them have arrived and before any of them is released.
+ *
+ * <p>Every party has an index in {@code 0..getParties()-1} and passes it to {@link #await(int)}, which lets an
+ * implementation give each party a spot of its own instead of making all of them contend on one lock. Everything a
+ * party did before arriving is visible to the action and to every party after it is released.</p>
+ */
+public interface RoundBarrier {
+    /**
+     * Waits until all parties have arrived.
+     *
+     * @param party index of the calling party
+     * @throws InterruptedException   if interrupted while waiting, which breaks the barrier
+     * @throws BrokenBarrierException if the barrier is or gets broken while waiting
+     */
+    void await(int party) throws InterruptedException, BrokenBarrierException;
+
+    /**
+     * Breaks the barrier once the parties are done with it: parties still waiting get a
+     * {@code BrokenBarrierException}.
+     */
+    void reset();
+
+    /**
+     * Gets the number of parties.
+     *
+     * @return number of parties
+     */
+    int getParties();
+}
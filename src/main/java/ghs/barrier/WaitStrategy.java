@@ -0,0 +1,20 @@
+package ghs.barrier;
+
+/**
+ * How a party of a {@link CombiningTreeBarrier} waits for the others.
+ */
+public enum WaitStrategy {
+    /**
+     * Busy-waits. Lowest latency, but only sensible with at most one party per core.
+     */
+    SPIN,
+    /**
+     * Busy-waits for a short while, then yields the processor between checks.
+     */
+    SPIN_YIELD,
+    /**
+     * Busy-waits for a short while, then parks until woken. The only choice with more parties than cores, and for
+     * virtual threads.
+     */
+    PARK
+}
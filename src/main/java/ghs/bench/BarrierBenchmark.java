@@ -0,0 +1,119 @@
+package ghs.bench;
+
+import ghs.barrier.CombiningTreeBarrier;
+import ghs.barrier.CyclicRoundBarrier;
+import ghs.barrier.RoundBarrier;
+import ghs.barrier.WaitStrategy;
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.BrokenBarrierException;
+
+/**
+ * Measures the cost of one round of a barrier, i.e. of every party arriving and being released once, for growing
+ * numbers of parties.
+ *
+ * <p>Every party is a thread that does nothing but wait at the barrier, as the processes of the threaded modes do when
+ * a round has little work. The barrier action timestamps the rounds, after a few warm-up rounds. Parties are platform
+ * threads up to {@link #PLATFORM_LIMIT}, virtual threads beyond. {@code SPIN} is only measured while there are no more
+ * parties than cores.</p>
+ *
+ * <p>Usage: {@code BarrierBenchmark [parties...]}, 8 to 100000 parties by default.</p>
+ */
+public class BarrierBenchmark {
+    private static Logger log = Logger.getLogger("Benchmark");
+    private static final int PLATFORM_LIMIT = 4096;     // more parties run on virtual threads
+    private static final int WARMUP = 20;               // rounds before the clock starts
+    private static final long BUDGET = 400_000;         // about this many arrivals per measurement
+
+    /**
+     * The action of the barrier, timestamps the first and the last measured round.
+     */
+    private static class Clock implements Runnable {
+        private int rounds;
+        private int measured;
+        private long start;
+        private long end;
+
+        Clock(int measured) {
+            this.measured = measured;
+        }
+
+        @Override
+        public void run() {
+            this.rounds++;
+            if (this.rounds == WARMUP) {
+                this.start = System.nanoTime();
+            } else if (this.rounds == WARMUP + this.measured) {
+                this.end = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Lets every party wait at a barrier for a number of rounds.
+     *
+     * @param barrier the barrier
+     * @param rounds  number of rounds
+     * @throws InterruptedException if interrupted
+     */
+    private static void runRounds(RoundBarrier barrier, int rounds) throws InterruptedException {
+        int parties = barrier.getParties();
+        Thread[] threads = new Thread[parties];
+        for (int i = 0; i < parties; i++) {
+            int party = i;
+            Runnable task = () -> {
+                try {
+                    for (int r = 0; r < rounds; r++) {
+                        barrier.await(party);
+                    }
+                } catch (InterruptedException | BrokenBarrierException e) {
+                    e.printStackTrace();
+                }
+            };
+            threads[i] = parties <= PLATFORM_LIMIT ? Thread.ofPlatform().start(task) : Thread.ofVirtual().start(task);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Measures one kind of barrier and logs the time per round.
+     *
+     * @param name     name of the barrier
+     * @param parties  number of parties
+     * @param strategy wait strategy of a tree barrier, null for a {@code CyclicBarrier}
+     * @throws InterruptedException if interrupted
+     */
+    private static void measure(String name, int parties, WaitStrategy strategy) throws InterruptedException {
+        int measured = (int) Math.max(10, BUDGET / parties);
+        Clock clock = new Clock(measured);
+        RoundBarrier barrier = strategy == null ? new CyclicRoundBarrier(parties, clock) :
+                new CombiningTreeBarrier(parties, clock, strategy);
+        runRounds(barrier, WARMUP + measured);
+        double perRound = (double) (clock.end - clock.start) / measured;
+        log.info(String.format("  %-16s %12.1f us/round, %8.1f ns per party (%d rounds measured)",
+                name, perRound / 1e3, perRound / parties, measured));
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int[] counts = {8, 64, 512, 4096, 32768, 100000};
+        if (args.length > 0) {
+            counts = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                counts[i] = Integer.parseInt(args[i]);
+            }
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int parties : counts) {
+            log.info("parties=" + parties + ", " + (parties <= PLATFORM_LIMIT ? "platform" : "virtual") +
+                    " threads, cores=" + cores);
+            measure("cyclic", parties, null);
+            measure("tree/park", parties, WaitStrategy.PARK);
+            measure("tree/spin-yield", parties, WaitStrategy.SPIN_YIELD);
+            if (parties <= cores) {
+                measure("tree/spin", parties, WaitStrategy.SPIN);
+            }
+        }
+    }
+}
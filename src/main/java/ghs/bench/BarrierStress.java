@@ -0,0 +1,118 @@
+package ghs.bench;
+
+import ghs.barrier.CombiningTreeBarrier;
+import ghs.barrier.CyclicRoundBarrier;
+import ghs.barrier.RoundBarrier;
+import ghs.barrier.WaitStrategy;
+import org.apache.log4j.Logger;
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a barrier for many rounds with more parties than cores, so that parties get preempted at every step of arriving
+ * and waiting, and fails if the barrier hangs or releases a party early.
+ *
+ * <p>Every party checks after each round that the action has run exactly once per round so far, i.e. that it was not
+ * released before the last party arrived. A round that takes longer than {@link #STALL_MILLIS} counts as a hang: the
+ * parties still waiting are logged and the process exits with status 1.</p>
+ *
+ * <p>Usage: {@code BarrierStress [parties [rounds [trials]]]}, by default four times as many parties as cores, plus
+ * three so the last node of the tree is not full, and 20000 rounds per trial, repeated for 5 trials of every wait
+ * strategy that may wait longer than a spin, and of {@code CyclicBarrier}.</p>
+ */
+public class BarrierStress {
+    private static Logger log = Logger.getLogger("Stress");
+    private static final long STALL_MILLIS = 10_000;    // a round this slow means the barrier hangs
+
+    /**
+     * Runs a barrier for a number of rounds.
+     *
+     * @param name     name of the barrier
+     * @param parties  number of parties
+     * @param rounds   number of rounds
+     * @param strategy wait strategy of a tree barrier, null for a {@code CyclicBarrier}
+     * @return false if the barrier hung or released a party early
+     * @throws InterruptedException if interrupted
+     */
+    private static boolean stress(String name, int parties, int rounds, WaitStrategy strategy)
+            throws InterruptedException {
+        AtomicInteger actions = new AtomicInteger();
+        AtomicInteger early = new AtomicInteger();
+        AtomicInteger progress = new AtomicInteger();   // rounds finished, summed over the parties
+        Runnable action = actions::incrementAndGet;
+        RoundBarrier barrier = strategy == null ? new CyclicRoundBarrier(parties, action) :
+                new CombiningTreeBarrier(parties, action, strategy);
+        Thread[] threads = new Thread[parties];
+        int[] done = new int[parties];      // rounds finished by each party
+        for (int i = 0; i < parties; i++) {
+            int party = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    for (int r = 0; r < rounds; r++) {
+                        barrier.await(party);
+                        if (actions.get() < r + 1) {
+                            early.incrementAndGet();
+                        }
+                        done[party] = r + 1;
+                        progress.incrementAndGet();
+                    }
+                } catch (InterruptedException | BrokenBarrierException e) {
+                    // reset by the watchdog below
+                }
+            }, "party-" + i);
+            threads[i].start();
+        }
+
+        long start = System.nanoTime();
+        int seen = -1;
+        long lastProgress = System.currentTimeMillis();
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                thread.join(100);
+                int now = progress.get();
+                if (now != seen) {
+                    seen = now;
+                    lastProgress = System.currentTimeMillis();
+                } else if (System.currentTimeMillis() - lastProgress > STALL_MILLIS) {
+                    StringBuilder stuck = new StringBuilder();
+                    for (int i = 0; i < parties; i++) {
+                        if (threads[i].isAlive()) {
+                            stuck.append(' ').append(i).append('@').append(done[i]);
+                        }
+                    }
+                    log.error("  " + name + " hung after " + actions.get() + " rounds, parties still waiting " +
+                            "(party@rounds done):" + stuck);
+                    barrier.reset();
+                    return false;
+                }
+            }
+        }
+        long micros = (System.nanoTime() - start) / 1000;
+        if (early.get() > 0 || actions.get() != rounds) {
+            log.error("  " + name + " released parties early " + early.get() + " times, ran the action " +
+                    actions.get() + " times in " + rounds + " rounds");
+            return false;
+        }
+        log.info(String.format("  %-16s %d rounds in %d ms", name, rounds, micros / 1000));
+        return true;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int parties = args.length > 0 ? Integer.parseInt(args[0]) : 4 * cores + 3;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int trials = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        log.info("parties=" + parties + ", rounds=" + rounds + ", trials=" + trials + ", cores=" + cores);
+        boolean ok = true;
+        for (int t = 0; t < trials && ok; t++) {
+            ok = stress("cyclic", parties, rounds, null) &&
+                    stress("tree/park", parties, rounds, WaitStrategy.PARK) &&
+                    stress("tree/spin-yield", parties, rounds, WaitStrategy.SPIN_YIELD);
+        }
+        if (!ok) {
+            System.exit(1);
+        }
+        log.info("No hang and no early release.");
+    }
+}
@@ -0,0 +1,169 @@
+package ghs.bench;
+
+import ghs.graph.CompactGraph;
+import ghs.graph.PortIndex;
+import org.apache.log4j.Logger;
+
+import java.util.Random;
+
+/**
+ * Measures the cost of finding the link to a neighbor at the hub of a star and of a power-law graph.
+ *
+ * <p>Every {@code Accept} and {@code Reject} a process handles needs the edge to the neighbor that sent it, so over a
+ * phase a hub looks up each of its neighbors about once. The benchmark does exactly that, in random order, with a
+ * linear scan of the links (how {@code Process.getEdge} used to work), a binary search over the sorted row of a
+ * {@link CompactGraph} and a {@link PortIndex}.</p>
+ *
+ * <p>Usage: {@code LookupBenchmark [vertices] [seed]}, 100000 vertices by default.</p>
+ */
+public class LookupBenchmark {
+    private static Logger log = Logger.getLogger("Benchmark");
+    private static final long LINEAR_BUDGET = 2_000_000_000L;   // stop the quadratic scan after about this many steps
+
+    private static volatile int sink;   // keeps the lookups from being optimized away
+
+    /**
+     * Builds a star, vertex 0 is the hub.
+     *
+     * @param n      number of vertices
+     * @param random source of weights
+     * @return CompactGraph instance
+     */
+    static CompactGraph star(int n, Random random) {
+        int[] either = new int[n - 1];
+        int[] other = new int[n - 1];
+        double[] weight = new double[n - 1];
+        for (int i = 1; i < n; i++) {
+            either[i - 1] = 0;
+            other[i - 1] = i;
+            weight[i - 1] = random.nextDouble();
+        }
+        return new CompactGraph(n, either, other, weight);
+    }
+
+    /**
+     * Builds a power-law graph by preferential attachment, every new vertex links to two earlier ones.
+     *
+     * @param n      number of vertices
+     * @param random source of randomness
+     * @return CompactGraph instance
+     */
+    static CompactGraph powerLaw(int n, Random random) {
+        int m = 2 * (n - 2) + 1;
+        int[] either = new int[m];
+        int[] other = new int[m];
+        double[] weight = new double[m];
+        either[0] = 0;
+        other[0] = 1;
+        weight[0] = random.nextDouble();
+        int e = 1;
+        for (int v = 2; v < n; v++) {
+            for (int k = 0; k < 2; k++) {
+                // an endpoint of a random earlier edge is picked proportionally to its degree
+                int f = random.nextInt(e);
+                either[e] = v;
+                other[e] = random.nextBoolean() ? either[f] : other[f];
+                if (other[e] == v) {
+                    other[e] = either[f] == v ? other[f] : either[f];
+                }
+                weight[e++] = random.nextDouble();
+            }
+        }
+        return new CompactGraph(n, either, other, weight);
+    }
+
+    /**
+     * Finds the vertex of highest degree.
+     *
+     * @param graph the graph
+     * @return the hub
+     */
+    static int hub(CompactGraph graph) {
+        int hub = 0;
+        for (int v = 1; v < graph.V(); v++) {
+            if (graph.degree(v) > graph.degree(hub)) {
+                hub = v;
+            }
+        }
+        return hub;
+    }
+
+    /**
+     * Looks up every neighbor of the hub once, in random order, and logs the time per lookup of each strategy.
+     *
+     * @param name   name of the graph
+     * @param graph  the graph
+     * @param random source of randomness
+     */
+    static void run(String name, CompactGraph graph, Random random) {
+        int hub = hub(graph);
+        int degree = graph.degree(hub);
+        int[] queries = new int[degree];
+        for (int port = 0; port < degree; port++) {
+            queries[port] = graph.neighbor(hub, port);
+        }
+        for (int i = degree - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = queries[i];
+            queries[i] = queries[j];
+            queries[j] = t;
+        }
+        log.info(name + ": V=" + graph.V() + ", E=" + graph.E() + ", hub=" + hub + ", degree=" + degree);
+
+        // linear scan, capped because it is quadratic over the phase
+        int count = (int) Math.min(degree, Math.max(1, LINEAR_BUDGET / Math.max(1, degree)));
+        long start = System.nanoTime();
+        int acc = 0;
+        for (int i = 0; i < count; i++) {
+            for (int port = 0; port < degree; port++) {
+                if (graph.neighbor(hub, port) == queries[i]) {
+                    acc += graph.edge(hub, port);
+                    break;
+                }
+            }
+        }
+        report("linear scan", count, System.nanoTime() - start, degree);
+
+        for (int warmup = 0; warmup < 2; warmup++) {
+            start = System.nanoTime();
+            for (int i = 0; i < degree; i++) {
+                acc += graph.edge(hub, graph.port(hub, queries[i]));
+            }
+        }
+        report("binary search", degree, System.nanoTime() - start, degree);
+
+        start = System.nanoTime();
+        PortIndex index = new PortIndex(graph, hub);
+        log.info(String.format("  %-14s built in %.2f ms", "port index", (System.nanoTime() - start) / 1e6));
+        for (int warmup = 0; warmup < 2; warmup++) {
+            start = System.nanoTime();
+            for (int i = 0; i < degree; i++) {
+                acc += graph.edge(hub, index.get(queries[i]));
+            }
+        }
+        report("port index", degree, System.nanoTime() - start, degree);
+        sink = acc;
+    }
+
+    /**
+     * Logs the time per lookup and the extrapolated cost of one phase at the hub.
+     *
+     * @param strategy name of the strategy
+     * @param lookups  number of lookups measured
+     * @param nanos    time they took
+     * @param degree   degree of the hub, i.e. lookups per phase
+     */
+    private static void report(String strategy, int lookups, long nanos, int degree) {
+        double perLookup = (double) nanos / lookups;
+        log.info(String.format("  %-14s %10.1f ns/lookup, %10.2f ms per phase (%d lookups measured)",
+                strategy, perLookup, perLookup * degree / 1e6, lookups));
+    }
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        Random random = new Random(seed);
+        run("star", star(n, random), random);
+        run("power-law", powerLaw(n, random), random);
+    }
+}
@@ -0,0 +1,292 @@
+package ghs.graph;
+
+import edu.princeton.cs.algs4.Edge;
+import edu.princeton.cs.algs4.EdgeWeightedGraph;
+
+import java.util.Arrays;
+
+/**
+ * The {@code CompactGraph} is an immutable, undirected, edge-weighted graph in compressed sparse row form, shared by
+ * every process of the network.
+ *
+ * <p>Edges are addressed by an id in {@code 0..E-1}; the endpoints and the weight of an edge are kept in primitive
+ * arrays indexed by that id. Every edge appears twice in the adjacency structure, once as an arc out of each of its
+ * endpoints. The arcs of vertex {@code v} occupy positions {@code offset(v)} to {@code offset(v + 1) - 1}, sorted by the
+ * id of the neighbor, and the position of an arc within that row is the port of the link at {@code v}.</p>
+ *
+ * <p>Edges are totally ordered by weight, ties broken by id, see {@link #compare(int, int)}. Self-loops are dropped,
+ * they never belong to a spanning tree.</p>
+ */
+public final class CompactGraph {
+    private final int V;
+    private final int E;
+
+    // per edge
+    private final int[] either;         // one endpoint of each edge
+    private final int[] other;          // the other endpoint of each edge
+    private final double[] weight;      // weight of each edge
+
+    // per arc, 2E of them
+    private final int[] offsets;        // V + 1 entries, start of the arcs of each vertex
+    private final int[] targets;        // neighbor at the head of each arc
+    private final int[] arcEdges;       // edge id of each arc
+    private final int[] reversePorts;   // port of each arc at its head, i.e. the position of the opposite arc in its row
+
+    /**
+     * Builds a graph from lists of edges.
+     *
+     * @param V      number of vertices, named 0 to V-1
+     * @param either one endpoint of each edge
+     * @param other  the other endpoint of each edge
+     * @param weight weight of each edge
+     */
+    public CompactGraph(int V, int[] either, int[] other, double[] weight) {
+        int kept = 0;
+        for (int e = 0; e < either.length; e++) {
+            if (either[e] != other[e]) {
+                kept++;
+            }
+        }
+        if (kept != either.length) {
+            int[] keptEither = new int[kept];
+            int[] keptOther = new int[kept];
+            double[] keptWeight = new double[kept];
+            int i = 0;
+            for (int e = 0; e < either.length; e++) {
+                if (either[e] != other[e]) {
+                    keptEither[i] = either[e];
+                    keptOther[i] = other[e];
+                    keptWeight[i++] = weight[e];
+                }
+            }
+            either = keptEither;
+            other = keptOther;
+            weight = keptWeight;
+        }
+        this.V = V;
+        this.E = either.length;
+        this.either = either;
+        this.other = other;
+        this.weight = weight;
+
+        this.offsets = new int[V + 1];
+        for (int e = 0; e < this.E; e++) {
+            this.offsets[either[e] + 1]++;
+            this.offsets[other[e] + 1]++;
+        }
+        for (int v = 0; v < V; v++) {
+            this.offsets[v + 1] += this.offsets[v];
+        }
+
+        // first pass, arcs in edge order
+        int[] next = new int[V];
+        int[] unsorted = new int[2 * this.E];
+        for (int e = 0; e < this.E; e++) {
+            unsorted[this.offsets[either[e]] + next[either[e]]++] = e;
+            unsorted[this.offsets[other[e]] + next[other[e]]++] = e;
+        }
+
+        // second pass, the arcs of v are appended to the rows of its neighbors in increasing order of v,
+        // which sorts every row by neighbor id
+        Arrays.fill(next, 0);
+        this.targets = new int[2 * this.E];
+        this.arcEdges = new int[2 * this.E];
+        for (int v = 0; v < V; v++) {
+            for (int a = this.offsets[v]; a < this.offsets[v + 1]; a++) {
+                int e = unsorted[a];
+                int u = opposite(e, v);
+                int pos = this.offsets[u] + next[u]++;
+                this.targets[pos] = v;
+                this.arcEdges[pos] = e;
+            }
+        }
+
+        this.reversePorts = new int[2 * this.E];
+        for (int v = 0; v < V; v++) {
+            for (int a = this.offsets[v]; a < this.offsets[v + 1]; a++) {
+                int u = this.targets[a];
+                int b = this.offsets[u] + lowerBound(u, v);
+                while (this.arcEdges[b] != this.arcEdges[a]) {
+                    b++;    // parallel edges share the neighbor
+                }
+                this.reversePorts[a] = b - this.offsets[u];
+            }
+        }
+    }
+
+    /**
+     * Converts an algs4 {@code EdgeWeightedGraph}.
+     *
+     * @param graph EdgeWeightedGraph instance
+     * @return CompactGraph with the same vertices and edges
+     */
+    public static CompactGraph of(EdgeWeightedGraph graph) {
+        int[] either = new int[graph.E()];
+        int[] other = new int[graph.E()];
+        double[] weight = new double[graph.E()];
+        int e = 0;
+        for (Edge edge : graph.edges()) {
+            either[e] = edge.either();
+            other[e] = edge.other(edge.either());
+            weight[e++] = edge.weight();
+        }
+        return new CompactGraph(graph.V(), either, other, weight);
+    }
+
+    /**
+     * Gets the number of vertices.
+     *
+     * @return number of vertices
+     */
+    public int V() {
+        return V;
+    }
+
+    /**
+     * Gets the number of edges.
+     *
+     * @return number of edges
+     */
+    public int E() {
+        return E;
+    }
+
+    /**
+     * Gets the number of links of a vertex.
+     *
+     * @param v vertex
+     * @return degree of v
+     */
+    public int degree(int v) {
+        return this.offsets[v + 1] - this.offsets[v];
+    }
+
+    /**
+     * Gets the position of the first arc of a vertex in the per-arc arrays.
+     *
+     * @param v vertex
+     * @return offset of the row of v
+     */
+    public int offset(int v) {
+        return this.offsets[v];
+    }
+
+    /**
+     * Gets the neighbor at the other end of a link.
+     *
+     * @param v    vertex
+     * @param port link of v
+     * @return id of the neighbor
+     */
+    public int neighbor(int v, int port) {
+        return this.targets[this.offsets[v] + port];
+    }
+
+    /**
+     * Gets the edge of a link.
+     *
+     * @param v    vertex
+     * @param port link of v
+     * @return edge id
+     */
+    public int edge(int v, int port) {
+        return this.arcEdges[this.offsets[v] + port];
+    }
+
+    /**
+     * Gets the port a link has at the neighbor at its other end.
+     *
+     * @param v    vertex
+     * @param port link of v
+     * @return port of the same link at {@code neighbor(v, port)}
+     */
+    public int reversePort(int v, int port) {
+        return this.reversePorts[this.offsets[v] + port];
+    }
+
+    /**
+     * Finds the link of a vertex to a neighbor.
+     *
+     * @param v        vertex
+     * @param neighbor id of the neighbor
+     * @return the lowest port of v that leads to the neighbor, or -1 if they are not adjacent
+     */
+    public int port(int v, int neighbor) {
+        int port = lowerBound(v, neighbor);
+        return port < degree(v) && neighbor(v, port) == neighbor ? port : -1;
+    }
+
+    /**
+     * Binary search for the first arc of a row whose neighbor is not less than a given id.
+     *
+     * @param v        vertex
+     * @param neighbor id of the neighbor
+     * @return port of that arc, or the degree of v if there is none
+     */
+    private int lowerBound(int v, int neighbor) {
+        int lo = this.offsets[v];
+        int hi = this.offsets[v + 1];
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (this.targets[mid] < neighbor) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo - this.offsets[v];
+    }
+
+    /**
+     * Gets one endpoint of an edge.
+     *
+     * @param e edge id
+     * @return one endpoint
+     */
+    public int either(int e) {
+        return this.either[e];
+    }
+
+    /**
+     * Gets the endpoint of an edge opposite to a vertex.
+     *
+     * @param e edge id
+     * @param v one endpoint of e
+     * @return the other endpoint
+     */
+    public int opposite(int e, int v) {
+        return this.either[e] == v ? this.other[e] : this.either[e];
+    }
+
+    /**
+     * Gets the weight of an edge.
+     *
+     * @param e edge id
+     * @return weight
+     */
+    public double weight(int e) {
+        return this.weight[e];
+    }
+
+    /**
+     * Compares two edges by weight, ties broken by id.
+     *
+     * @param e edge id
+     * @param f edge id
+     * @return negative, zero or positive as e is lighter than, the same as or heavier than f
+     */
+    public int compare(int e, int f) {
+        int c = Double.compare(this.weight[e], this.weight[f]);
+        return c != 0 ? c : Integer.compare(e, f);
+    }
+
+    /**
+     * Builds an algs4 {@code Edge} for an edge, e.g. for printing.
+     *
+     * @param e edge id
+     * @return a new Edge
+     */
+    public Edge toEdge(int e) {
+        return new Edge(this.either[e], this.other[e], this.weight[e]);
+    }
+}
@@ -0,0 +1,228 @@
+package ghs.graph;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes graphs in a compact binary edge-list format.
+ *
+ * <p>The file is little-endian. A 16 byte header holds the magic number {@code GHSB}, a format version, the number of
+ * vertices and the number of edges. It is followed by one 16 byte record per edge: the two endpoints as {@code int}s
+ * and the weight as a {@code double}, so weights survive the round trip from text exactly.</p>
+ *
+ * <p>{@link #read(Path)} maps the file into memory and decodes the records straight into the arrays of a
+ * {@link CompactGraph}, without creating an object per edge. {@link #convert(Path, Path)} streams a graph in the text
+ * format of algs4's {@code EdgeWeightedGraph}, e.g. {@code in/tinyEWG.txt}, into the binary format.</p>
+ */
+public class GraphFile {
+    public static final int MAGIC = 0x42534847;     // "GHSB" read as a little-endian int
+    public static final int VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+    public static final int RECORD_BYTES = 16;
+
+    private static final long MAX_MAPPING = (Integer.MAX_VALUE / RECORD_BYTES) * (long) RECORD_BYTES;
+
+    /**
+     * Checks whether a file starts with the magic number of the binary format.
+     *
+     * @param path the file
+     * @return true if the file is in the binary format
+     * @throws IOException if the file can't be read
+     */
+    public static boolean isBinary(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // read until the buffer is full or the file ends
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Loads a graph in the binary format.
+     *
+     * @param path the file
+     * @return CompactGraph instance
+     * @throws IOException if the file can't be read or is not in the binary format
+     */
+    public static CompactGraph read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException(path + " is too short for a graph header");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException(path + " is not a graph in binary format version " + VERSION);
+            }
+            int V = header.getInt(8);
+            int E = header.getInt(12);
+            if (V < 0 || E < 0 || size != HEADER_BYTES + (long) E * RECORD_BYTES) {
+                throw new IOException(path + " has " + size + " bytes, which doesn't match V=" + V + ", E=" + E);
+            }
+
+            int[] either = new int[E];
+            int[] other = new int[E];
+            double[] weight = new double[E];
+            // a mapping is limited to 2GB, larger files are mapped a window of whole records at a time
+            int e = 0;
+            for (long position = HEADER_BYTES; position < size; ) {
+                long length = Math.min(MAX_MAPPING, size - position);
+                MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                records.order(ByteOrder.LITTLE_ENDIAN);
+                for (int offset = 0; offset < length; offset += RECORD_BYTES, e++) {
+                    either[e] = records.getInt(offset);
+                    other[e] = records.getInt(offset + 4);
+                    weight[e] = records.getDouble(offset + 8);
+                    if (either[e] < 0 || either[e] >= V || other[e] < 0 || other[e] >= V) {
+                        throw new IOException("Edge " + e + " of " + path + " has an endpoint out of range");
+                    }
+                }
+                position += length;
+            }
+            return new CompactGraph(V, either, other, weight);
+        }
+    }
+
+    /**
+     * Writes a graph in the binary format.
+     *
+     * @param graph the graph
+     * @param path  the file, replaced if it exists
+     * @throws IOException if the file can't be written
+     */
+    public static void write(CompactGraph graph, Path path) throws IOException {
+        try (Writer writer = new Writer(path, graph.V(), graph.E())) {
+            for (int e = 0; e < graph.E(); e++) {
+                writer.add(graph.either(e), graph.opposite(e, graph.either(e)), graph.weight(e));
+            }
+        }
+    }
+
+    /**
+     * Converts a graph from the algs4 text format to the binary format, one edge at a time.
+     *
+     * <p>The text format is the number of vertices, the number of edges, then one line per edge with its two endpoints
+     * and its weight, separated by whitespace.</p>
+     *
+     * @param text   the text file
+     * @param binary the binary file, replaced if it exists
+     * @throws IOException if a file can't be read or written, or the text is malformed
+     */
+    public static void convert(Path text, Path binary) throws IOException {
+        try (Tokenizer in = new Tokenizer(new BufferedInputStream(new FileInputStream(text.toFile()), 1 << 16))) {
+            int V = Integer.parseInt(in.next());
+            int E = Integer.parseInt(in.next());
+            try (Writer writer = new Writer(binary, V, E)) {
+                for (int e = 0; e < E; e++) {
+                    int v = Integer.parseInt(in.next());
+                    int w = Integer.parseInt(in.next());
+                    double weight = Double.parseDouble(in.next());
+                    writer.add(v, w, weight);
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException(text + " is not a graph in text format", e);
+        }
+    }
+
+    /**
+     * Streams edge records to a file through a direct buffer.
+     */
+    private static class Writer implements AutoCloseable {
+        private FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        private int expected;
+        private int written;
+
+        Writer(Path path, int V, int E) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.expected = E;
+            this.buffer.putInt(MAGIC).putInt(VERSION).putInt(V).putInt(E);
+        }
+
+        void add(int v, int w, double weight) throws IOException {
+            if (this.buffer.remaining() < RECORD_BYTES) {
+                flush();
+            }
+            this.buffer.putInt(v).putInt(w).putDouble(weight);
+            this.written++;
+        }
+
+        private void flush() throws IOException {
+            this.buffer.flip();
+            while (this.buffer.hasRemaining()) {
+                this.channel.write(this.buffer);
+            }
+            this.buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                if (this.written != this.expected) {
+                    throw new IOException("Header announces " + this.expected + " edges, " + this.written + " written");
+                }
+            } finally {
+                this.channel.close();
+            }
+        }
+    }
+
+    /**
+     * Splits a stream into whitespace separated tokens.
+     */
+    private static class Tokenizer implements AutoCloseable {
+        private InputStream in;
+        private StringBuilder token = new StringBuilder();
+
+        Tokenizer(InputStream in) {
+            this.in = in;
+        }
+
+        String next() throws IOException {
+            int c = this.in.read();
+            while (c != -1 && Character.isWhitespace(c)) {
+                c = this.in.read();
+            }
+            if (c == -1) {
+                throw new IOException("Unexpected end of input");
+            }
+            this.token.setLength(0);
+            while (c != -1 && !Character.isWhitespace(c)) {
+                this.token.append((char) c);
+                c = this.in.read();
+            }
+            return this.token.toString();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.in.close();
+        }
+    }
+
+    /**
+     * Converts a graph from the text format to the binary format.
+     *
+     * <p>Usage: {@code GraphFile in/tinyEWG.txt tinyEWG.bin}</p>
+     *
+     * @param args the text file and the binary file
+     * @throws IOException if a file can't be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        convert(Path.of(args[0]), Path.of(args[1]));
+    }
+}
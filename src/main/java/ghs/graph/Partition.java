@@ -0,0 +1,235 @@
+package ghs.graph;
+
+/**
+ * The {@code Partition} assigns every vertex of a {@link CompactGraph} to one of {@code k} parts of nearly equal size,
+ * e.g. the worker threads or shards that run the processes of the network.
+ *
+ * <p>{@link #bfs(CompactGraph, int)} places vertices by graph structure: it lists the vertices in breadth-first order,
+ * one component after the other, and cuts that list into {@code k} consecutive slices. Neighbors are at most one BFS
+ * level apart, so most edges end up inside a slice and the few that don't connect adjacent slices. Each component is
+ * searched from a far away vertex, found by a first probing search, which keeps the levels narrow.</p>
+ *
+ * <p>Slices of a BFS order still cut many edges when the levels are wide, as in random graphs, so a few passes of
+ * label propagation follow: every vertex moves to the part that holds most of its neighbors, as long as the parts stay
+ * within {@link #IMBALANCE} of their average size.</p>
+ *
+ * <p>Both partitions are deterministic, so processes that build them from the same graph, e.g. the shards of one run,
+ * agree on where every vertex lives.</p>
+ */
+public class Partition {
+    private static final double IMBALANCE = 0.03;   // how far a part may grow or shrink while refining
+    private static final int PASSES = 8;            // most label propagation passes
+    private final int parts;
+    private final int[] partOf;         // part of each vertex
+    private final int[] sizes;          // number of vertices in each part
+    private final int cutEdges;         // edges whose endpoints are in different parts
+    private final int E;
+
+    /**
+     * Wraps a part map and measures its edge cut.
+     *
+     * @param graph  the graph
+     * @param parts  number of parts
+     * @param partOf part of each vertex
+     */
+    private Partition(CompactGraph graph, int parts, int[] partOf) {
+        this.parts = parts;
+        this.partOf = partOf;
+        this.sizes = new int[parts];
+        for (int v = 0; v < graph.V(); v++) {
+            this.sizes[partOf[v]]++;
+        }
+        int cut = 0;
+        for (int e = 0; e < graph.E(); e++) {
+            int v = graph.either(e);
+            if (partOf[v] != partOf[graph.opposite(e, v)]) {
+                cut++;
+            }
+        }
+        this.cutEdges = cut;
+        this.E = graph.E();
+    }
+
+    /**
+     * Splits the vertices into contiguous ranges of ids, ignoring the edges.
+     *
+     * @param graph the graph
+     * @param parts number of parts
+     * @return Partition instance
+     */
+    public static Partition contiguous(CompactGraph graph, int parts) {
+        int[] partOf = new int[graph.V()];
+        for (int v = 0; v < graph.V(); v++) {
+            partOf[v] = (int) ((long) v * parts / graph.V());
+        }
+        return new Partition(graph, parts, partOf);
+    }
+
+    /**
+     * Splits the vertices into consecutive slices of a breadth-first order, then refines the slices by label
+     * propagation, so that few edges cross parts.
+     *
+     * @param graph the graph
+     * @param parts number of parts
+     * @return Partition instance
+     */
+    public static Partition bfs(CompactGraph graph, int parts) {
+        int V = graph.V();
+        int[] order = new int[V];       // vertices in BFS order, the unfilled tail doubles as the probing queue
+        boolean[] placed = new boolean[V];
+        int[] probed = new int[V];      // 1 + root of the probing search that last reached each vertex
+        int n = 0;
+        for (int root = 0; root < V; root++) {
+            if (placed[root]) {
+                continue;
+            }
+            int start = farthest(graph, root, order, n, probed);
+            placed[start] = true;
+            order[n++] = start;
+            for (int head = n - 1; head < n; head++) {
+                int v = order[head];
+                for (int port = 0; port < graph.degree(v); port++) {
+                    int w = graph.neighbor(v, port);
+                    if (!placed[w]) {
+                        placed[w] = true;
+                        order[n++] = w;
+                    }
+                }
+            }
+        }
+
+        int[] partOf = new int[V];
+        int[] sizes = new int[parts];
+        for (int i = 0; i < V; i++) {
+            partOf[order[i]] = (int) ((long) i * parts / V);
+            sizes[partOf[order[i]]]++;
+        }
+        for (int pass = 0; pass < PASSES; pass++) {
+            if (refine(graph, parts, partOf, sizes) <= V / 1000) {
+                break;
+            }
+        }
+        return new Partition(graph, parts, partOf);
+    }
+
+    /**
+     * Runs one pass of label propagation, moving every vertex to the part that holds most of its neighbors if that
+     * keeps both parts within bounds.
+     *
+     * @param graph  the graph
+     * @param parts  number of parts
+     * @param partOf part of each vertex, updated
+     * @param sizes  size of each part, updated
+     * @return number of vertices moved
+     */
+    private static int refine(CompactGraph graph, int parts, int[] partOf, int[] sizes) {
+        int average = graph.V() / parts;
+        int slack = Math.max(1, (int) (average * IMBALANCE));
+        int max = average + slack;
+        int min = Math.max(1, average - slack);
+        int[] neighbors = new int[parts];  // neighbors of the current vertex in each part
+        int moved = 0;
+        for (int v = 0; v < graph.V(); v++) {
+            int from = partOf[v];
+            if (sizes[from] <= min) {
+                continue;
+            }
+            for (int port = 0; port < graph.degree(v); port++) {
+                neighbors[partOf[graph.neighbor(v, port)]]++;
+            }
+            int to = from;
+            for (int port = 0; port < graph.degree(v); port++) {
+                int part = partOf[graph.neighbor(v, port)];
+                if (neighbors[part] > neighbors[to] && sizes[part] < max) {
+                    to = part;
+                }
+            }
+            for (int port = 0; port < graph.degree(v); port++) {
+                neighbors[partOf[graph.neighbor(v, port)]] = 0;
+            }
+            if (to != from) {
+                partOf[v] = to;
+                sizes[from]--;
+                sizes[to]++;
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Finds the vertex that a breadth-first search from {@code root} reaches last.
+     *
+     * @param graph  the graph
+     * @param root   where to start
+     * @param queue  queue space, from {@code from} on
+     * @param from   first free slot of the queue
+     * @param probed marks of the probing searches
+     * @return last vertex reached
+     */
+    private static int farthest(CompactGraph graph, int root, int[] queue, int from, int[] probed) {
+        int mark = root + 1;
+        int tail = from;
+        probed[root] = mark;
+        queue[tail++] = root;
+        for (int head = from; head < tail; head++) {
+            int v = queue[head];
+            for (int port = 0; port < graph.degree(v); port++) {
+                int w = graph.neighbor(v, port);
+                if (probed[w] != mark) {
+                    probed[w] = mark;
+                    queue[tail++] = w;
+                }
+            }
+        }
+        return queue[tail - 1];
+    }
+
+    public int parts() {
+        return this.parts;
+    }
+
+    /**
+     * Returns the part of a vertex.
+     *
+     * @param v the vertex
+     * @return its part, in {@code 0..parts()-1}
+     */
+    public int partOf(int v) {
+        return this.partOf[v];
+    }
+
+    /**
+     * Returns the number of vertices in a part.
+     *
+     * @param part the part
+     * @return its size
+     */
+    public int size(int part) {
+        return this.sizes[part];
+    }
+
+    /**
+     * Returns the number of edges whose endpoints are in different parts.
+     *
+     * @return number of cut edges
+     */
+    public int cutEdges() {
+        return this.cutEdges;
+    }
+
+    /**
+     * Returns the share of the edges whose endpoints are in different parts.
+     *
+     * @return edge-cut ratio, between 0 and 1
+     */
+    public double edgeCutRatio() {
+        return this.E == 0 ? 0 : (double) this.cutEdges / this.E;
+    }
+
+    @Override
+    public String toString() {
+        return this.parts + " parts, " + this.cutEdges + " of " + this.E + " edges cut (" +
+                String.format("%.1f", 100 * edgeCutRatio()) + "%)";
+    }
+}
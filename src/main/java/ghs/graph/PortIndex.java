@@ -0,0 +1,85 @@
+package ghs.graph;
+
+import java.util.Arrays;
+
+/**
+ * The {@code PortIndex} maps the neighbors of one vertex to the ports of the links that lead to them, in constant
+ * time.
+ *
+ * <p>An open-addressing hash table with linear probing over two flat {@code int} arrays, built once when the process
+ * of the vertex is spawned. The rows of a {@link CompactGraph} can be binary searched already, so the index only pays
+ * off for vertices of high degree, see {@link #worthIndexing(int)}.</p>
+ */
+public class PortIndex {
+    private static final int MIN_DEGREE = 32;   // below this, a binary search over the row is as fast
+
+    private final int[] keys;       // neighbor ids, -1 for an empty slot
+    private final int[] ports;      // port of the link to the neighbor in the same slot
+    private final int shift;        // 32 - log2(capacity)
+
+    /**
+     * Builds the index of a vertex.
+     *
+     * @param graph the graph
+     * @param v     vertex
+     */
+    public PortIndex(CompactGraph graph, int v) {
+        int degree = graph.degree(v);
+        int capacity = Integer.highestOneBit(Math.max(2, 2 * degree - 1)) << 1;   // load factor at most 1/2
+        this.keys = new int[capacity];
+        this.ports = new int[capacity];
+        this.shift = 32 - Integer.numberOfTrailingZeros(capacity);
+        Arrays.fill(this.keys, -1);
+        for (int port = 0; port < degree; port++) {
+            int neighbor = graph.neighbor(v, port);
+            int i = slot(neighbor);
+            while (this.keys[i] != -1 && this.keys[i] != neighbor) {
+                i = (i + 1) & (capacity - 1);
+            }
+            if (this.keys[i] == -1) {       // parallel edges: the lowest port wins
+                this.keys[i] = neighbor;
+                this.ports[i] = port;
+            }
+        }
+    }
+
+    /**
+     * Checks whether a vertex has enough links for an index to beat a binary search over its row.
+     *
+     * @param degree degree of the vertex
+     * @return true if the vertex should be indexed
+     */
+    public static boolean worthIndexing(int degree) {
+        return degree >= MIN_DEGREE;
+    }
+
+    /**
+     * Fibonacci hashing of a neighbor id onto a slot.
+     *
+     * @param neighbor id of the neighbor
+     * @return home slot of the neighbor
+     */
+    private int slot(int neighbor) {
+        return (neighbor * 0x9E3779B9) >>> this.shift;
+    }
+
+    /**
+     * Finds the link to a neighbor.
+     *
+     * @param neighbor id of the neighbor
+     * @return the lowest port that leads to the neighbor, or -1 if it is not a neighbor
+     */
+    public int get(int neighbor) {
+        int i = slot(neighbor);
+        while (true) {
+            int key = this.keys[i];
+            if (key == neighbor) {
+                return this.ports[i];
+            }
+            if (key == -1) {
+                return -1;
+            }
+            i = (i + 1) & (this.keys.length - 1);
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package ghs.graph;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Loads a graph in the text format of algs4's {@code EdgeWeightedGraph}, e.g. {@code in/tinyEWG.txt}, in parallel.
+ *
+ * <p>The format is the number of vertices, the number of edges, then one line per edge with its two endpoints and its
+ * weight. After the header, the file is memory-mapped and split into byte ranges, and a fork/join task parses each
+ * range. A range owns the lines that start in it, so its boundaries need not fall on line boundaries. Numbers are
+ * parsed straight from the mapped bytes without creating a {@code String} per token, into primitive arrays that are
+ * then concatenated in file order, so edge ids are the line numbers of the edges just like when reading
+ * sequentially.</p>
+ */
+public class TextGraphReader {
+    private static final long RANGE_BYTES = 64L << 20;      // target size of the range parsed by one task
+    private static final long MAX_LINE_BYTES = 1L << 20;    // a range may read this far past its end to finish a line
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /**
+     * Loads a graph, parsing on the common fork/join pool.
+     *
+     * @param path the text file
+     * @return CompactGraph instance
+     * @throws IOException if the file can't be read or is malformed
+     */
+    public static CompactGraph read(Path path) throws IOException {
+        return read(path, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Loads a graph.
+     *
+     * @param path the text file
+     * @param pool pool to parse on
+     * @return CompactGraph instance
+     * @throws IOException if the file can't be read or is malformed
+     */
+    public static CompactGraph read(Path path, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+
+            // header: V and E, the edges start on the line after E
+            Range header = new Range(channel, 0, Math.min(size, MAX_LINE_BYTES), size);
+            header.map();
+            int V = header.parseInt();
+            int E = header.parseInt();
+            header.skipLine();
+            long bodyStart = header.position();
+            if (V < 0 || E < 0) {
+                throw new IOException(path + " has a negative number of vertices or edges");
+            }
+
+            // one task per range
+            int parallelism = pool.getParallelism();
+            long body = size - bodyStart;
+            int count = (int) Math.max(1, Math.max(Math.min(parallelism, body / (1 << 16)), body / RANGE_BYTES));
+            List<Range> ranges = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long start = bodyStart + body * i / count;
+                long end = bodyStart + body * (i + 1) / count;
+                ranges.add(new Range(channel, start, end, size));
+            }
+            List<ForkJoinTask<Void>> tasks = new ArrayList<>(count);
+            for (Range range : ranges) {
+                tasks.add(pool.submit(range));
+            }
+            for (ForkJoinTask<Void> task : tasks) {
+                task.join();
+            }
+            for (Range range : ranges) {
+                if (range.error != null) {
+                    throw new IOException(path + ": " + range.error);
+                }
+            }
+
+            // concatenate in file order
+            long parsed = 0;
+            for (Range range : ranges) {
+                parsed += range.edges;
+            }
+            if (parsed != E) {
+                throw new IOException(path + " announces " + E + " edges but lists " + parsed);
+            }
+            int[] either = new int[E];
+            int[] other = new int[E];
+            double[] weight = new double[E];
+            int e = 0;
+            for (Range range : ranges) {
+                System.arraycopy(range.either, 0, either, e, range.edges);
+                System.arraycopy(range.other, 0, other, e, range.edges);
+                System.arraycopy(range.weight, 0, weight, e, range.edges);
+                e += range.edges;
+            }
+            for (e = 0; e < E; e++) {
+                if (either[e] < 0 || either[e] >= V || other[e] < 0 || other[e] >= V) {
+                    throw new IOException("Edge " + e + " of " + path + " has an endpoint out of range");
+                }
+            }
+            return new CompactGraph(V, either, other, weight);
+        }
+    }
+
+    /**
+     * Parses the lines that start in a byte range of the file.
+     */
+    @SuppressWarnings("serial")     // a task of the pool, never serialized
+    private static class Range extends RecursiveAction {
+        private transient FileChannel channel;
+        private long start;             // first byte of the range
+        private long end;               // first byte after the range
+        private long size;              // size of the file
+        private long base;              // file position of the first mapped byte
+        private transient MappedByteBuffer bytes;
+        private int pos;                // next byte to read, relative to base
+
+        // results
+        private int edges;
+        private int[] either = new int[1024];
+        private int[] other = new int[1024];
+        private double[] weight = new double[1024];
+        private String error;
+
+        Range(FileChannel channel, long start, long end, long size) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.size = size;
+        }
+
+        /**
+         * Maps the range, one byte before it to tell whether it starts on a line, and enough after it to finish
+         * the last line.
+         */
+        void map() throws IOException {
+            this.base = Math.max(0, this.start - 1);
+            long length = Math.min(this.size, this.end + MAX_LINE_BYTES) - this.base;
+            this.bytes = this.channel.map(FileChannel.MapMode.READ_ONLY, this.base, length);
+            this.pos = (int) (this.start - this.base);
+        }
+
+        long position() {
+            return this.base + this.pos;
+        }
+
+        private boolean atEnd() {
+            return this.pos >= this.bytes.limit();
+        }
+
+        private int peek() {
+            return this.bytes.get(this.pos);
+        }
+
+        /**
+         * Skips spaces, tabs and carriage returns, but not line feeds.
+         */
+        private void skipBlanks() {
+            while (!atEnd()) {
+                int c = peek();
+                if (c != ' ' && c != '\t' && c != '\r') {
+                    break;
+                }
+                this.pos++;
+            }
+        }
+
+        /**
+         * Skips any whitespace, including line feeds.
+         */
+        private void skipWhitespace() {
+            while (!atEnd() && peek() <= ' ') {
+                this.pos++;
+            }
+        }
+
+        /**
+         * Moves past the next line feed.
+         */
+        void skipLine() throws IOException {
+            while (!atEnd() && peek() != '\n') {
+                this.pos++;
+            }
+            if (atEnd() && position() < this.size) {
+                throw new IOException("line longer than " + MAX_LINE_BYTES + " bytes at " + position());
+            }
+            if (!atEnd()) {
+                this.pos++;
+            }
+        }
+
+        long parseLong() throws IOException {
+            skipWhitespace();
+            boolean negative = !atEnd() && peek() == '-';
+            if (negative || (!atEnd() && peek() == '+')) {
+                this.pos++;
+            }
+            int from = this.pos;
+            long value = 0;
+            while (!atEnd() && peek() >= '0' && peek() <= '9') {
+                value = 10 * value + (peek() - '0');
+                this.pos++;
+            }
+            if (this.pos == from || this.pos - from > 18) {
+                throw new IOException("expected an integer at " + position());
+            }
+            return negative ? -value : value;
+        }
+
+        int parseInt() throws IOException {
+            long value = parseLong();
+            try {
+                return Math.toIntExact(value);
+            } catch (ArithmeticException e) {
+                throw new IOException(value + " is out of the range of an int before " + position());
+            }
+        }
+
+        /**
+         * Parses a decimal number. When the digits fit in 53 bits and the exponent is small, the result is exact
+         * from a single division or multiplication, otherwise the token is handed to {@code Double.parseDouble}.
+         */
+        double parseDouble() throws IOException {
+            skipWhitespace();
+            int from = this.pos;
+            boolean negative = !atEnd() && peek() == '-';
+            if (negative || (!atEnd() && peek() == '+')) {
+                this.pos++;
+            }
+            long mantissa = 0;
+            int digits = 0;
+            int scale = 0;
+            boolean simple = true;
+            while (!atEnd() && peek() >= '0' && peek() <= '9') {
+                mantissa = 10 * mantissa + (peek() - '0');
+                digits++;
+                this.pos++;
+            }
+            if (!atEnd() && peek() == '.') {
+                this.pos++;
+                while (!atEnd() && peek() >= '0' && peek() <= '9') {
+                    mantissa = 10 * mantissa + (peek() - '0');
+                    digits++;
+                    scale++;
+                    this.pos++;
+                }
+            }
+            if (digits == 0) {
+                throw new IOException("expected a number at " + position());
+            }
+            while (!atEnd() && peek() > ' ') {     // exponent, or anything else the fast path doesn't handle
+                simple = false;
+                this.pos++;
+            }
+            if (!simple || digits > 18 || mantissa >= (1L << 53) || scale >= POWERS_OF_TEN.length ||
+                    POWERS_OF_TEN[scale] >= (1L << 53)) {
+                byte[] token = new byte[this.pos - from];
+                this.bytes.get(from, token);
+                try {
+                    return Double.parseDouble(new String(token, StandardCharsets.US_ASCII));
+                } catch (NumberFormatException e) {
+                    throw new IOException("expected a number at " + (this.base + from));
+                }
+            }
+            double value = (double) mantissa / POWERS_OF_TEN[scale];
+            return negative ? -value : value;
+        }
+
+        private void grow() {
+            int capacity = 2 * this.either.length;
+            this.either = Arrays.copyOf(this.either, capacity);
+            this.other = Arrays.copyOf(this.other, capacity);
+            this.weight = Arrays.copyOf(this.weight, capacity);
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                map();
+                if (this.start > 0 && this.bytes.get(0) != '\n') {
+                    skipLine();     // the line that straddles the start belongs to the previous range
+                }
+                while (position() < this.end && !atEnd()) {
+                    skipBlanks();
+                    if (atEnd() || peek() == '\n') {    // empty line
+                        this.pos++;
+                        continue;
+                    }
+                    if (this.edges == this.either.length) {
+                        grow();
+                    }
+                    this.either[this.edges] = parseInt();
+                    this.other[this.edges] = parseInt();
+                    this.weight[this.edges] = parseDouble();
+                    this.edges++;
+                    skipBlanks();
+                    if (!atEnd() && peek() != '\n') {
+                        throw new IOException("expected the end of the line at " + position());
+                    }
+                    this.pos++;
+                }
+            } catch (IOException e) {
+                this.error = e.getMessage();
+            } finally {
+                this.bytes = null;
+            }
+        }
+    }
+}
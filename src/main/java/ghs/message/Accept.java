@@ -4,12 +4,27 @@ package ghs.message;
  * Sent in response to a {@code Test} message, when the responding process belongs to a different component.
  */
 public class Accept extends Message {
-    private Integer level;
+    private int level;
 
-    public Accept(Integer level) {
+    public Accept(int level) {
         this.level = level;
     }
 
+    Accept init(int level) {
+        this.level = level;
+        return this;
+    }
+
+    @Override
+    public MessageType getType() {
+        return MessageType.ACCEPT;
+    }
+
+    @Override
+    public int getLevel() {
+        return level;
+    }
+
     @Override
     public String toString() {
         return "Accept{" +
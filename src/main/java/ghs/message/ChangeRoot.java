@@ -1,19 +1,32 @@
 package ghs.message;
 
-import edu.princeton.cs.algs4.Edge;
-
 /**
  * A {@code ChangeRoot} message is sent from the leader of the component toward the component process that is adjacent
  * to the component's mwoe, after the mwoe has been determined.
  */
 public class ChangeRoot extends Message {
-    private Edge mwoe;
+    private int mwoe;
+
+    public ChangeRoot(int mwoe) {
+        this.mwoe = mwoe;
+    }
 
-    public ChangeRoot(Edge mwoe) {
+    ChangeRoot init(int mwoe) {
         this.mwoe = mwoe;
+        return this;
     }
 
-    public Edge getMwoe() {
+    @Override
+    public MessageType getType() {
+        return MessageType.CHANGE_ROOT;
+    }
+
+    public int getMwoe() {
+        return mwoe;
+    }
+
+    @Override
+    public int getEdge() {
         return mwoe;
     }
 
@@ -1,7 +1,5 @@
 package ghs.message;
 
-import edu.princeton.cs.algs4.Edge;
-
 import java.util.Objects;
 
 /**
@@ -9,19 +7,36 @@ import java.util.Objects;
  * another component.
  */
 public class Connect extends Message {
-    private Integer level;
-    private Edge mwoe;
+    private int level;
+    private int mwoe;
 
-    public Connect(Integer level, Edge mwoe) {
+    public Connect(int level, int mwoe) {
         this.level = level;
         this.mwoe = mwoe;
     }
 
-    public Integer getLevel() {
+    Connect init(int level, int mwoe) {
+        this.level = level;
+        this.mwoe = mwoe;
+        return this;
+    }
+
+    @Override
+    public MessageType getType() {
+        return MessageType.CONNECT;
+    }
+
+    @Override
+    public int getLevel() {
         return level;
     }
 
-    public Edge getMwoe() {
+    public int getMwoe() {
+        return mwoe;
+    }
+
+    @Override
+    public int getEdge() {
         return mwoe;
     }
 
@@ -42,8 +57,8 @@ public class Connect extends Message {
         if (o == null || getClass() != o.getClass()) return false;
         if (!super.equals(o)) return false;
         Connect connect = (Connect) o;
-        return level.equals(connect.level) &&
-                mwoe.equals(connect.mwoe);
+        return level == connect.level &&
+                mwoe == connect.mwoe;
     }
 
     @Override
@@ -1,37 +1,65 @@
 package ghs.message;
 
-import edu.princeton.cs.algs4.Edge;
-
-import java.util.Set;
-
 /**
- * Used to exit the program gracefully and send MST info to master thread.
+ * Used to exit the program gracefully. Sent by the master to kill the workers, by the leader of a component to hand
+ * the spanning tree of the component to the master, and by an engine thread that stops before every component has
+ * handed its tree over, with the reason.
  */
 public class Exit extends Message implements Comparable {
-    private Set<Edge> branchEdges;
-    private boolean isLeader;
-    private Edge coreEdge;
+    private int[] treeEdges;
+    private int coreEdge;
+    private Throwable failure;
 
-    public Exit(Integer sender) {
+    public Exit(int sender) {
         super(sender);
+        this.coreEdge = -1;
     }
 
-    public Exit(Integer sender, Edge coreEdge, Set<Edge> branchEdges, boolean isLeader) {
+    public Exit(int sender, int coreEdge, int[] treeEdges) {
         super(sender);
         this.coreEdge = coreEdge;
-        this.branchEdges = branchEdges;
-        this.isLeader = isLeader;
+        this.treeEdges = treeEdges;
+    }
+
+    public Exit(Throwable failure) {
+        super(-1);
+        this.coreEdge = -1;
+        this.failure = failure;
     }
 
-    public Edge getCoreEdge() {
+    @Override
+    public MessageType getType() {
+        return MessageType.EXIT;
+    }
+
+    public int getCoreEdge() {
         return coreEdge;
     }
 
-    public Set<Edge> getBranchEdges() {
-        return branchEdges;
+    /**
+     * Gets why the sender stopped without the tree.
+     *
+     * @return the reason, null if the message is no failure
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Gets the edges of the spanning tree of the sender's component, each once.
+     *
+     * @return edge ids
+     */
+    public int[] getTreeEdges() {
+        return treeEdges;
     }
 
-    public boolean isLeader() {
-        return isLeader;
+    /**
+     * Gets the number of processes in the sender's component.
+     *
+     * @return size of the component, one more than its tree edges
+     */
+    public int getComponentSize() {
+        return treeEdges.length + 1;
     }
 }
@@ -0,0 +1,24 @@
+package ghs.message;
+
+/**
+ * Broadcast by the leader along the final spanning tree once its component has no outgoing edge left, asking every
+ * process to send the edges of its subtree back up in {@code Result} messages.
+ */
+public class Finish extends Message {
+    public Finish() {
+    }
+
+    @Override
+    public MessageType getType() {
+        return MessageType.FINISH;
+    }
+
+    @Override
+    public String toString() {
+        return "Finish{" +
+                this.getSender() +
+                " ===> " + this.getReceiver() +
+                ", round=" + getRound() +
+                "}";
+    }
+}
@@ -1,7 +1,5 @@
 package ghs.message;
 
-import edu.princeton.cs.algs4.Edge;
-
 import java.util.Objects;
 
 /**
@@ -9,26 +7,45 @@ import java.util.Objects;
  * searching for the MWOE.
  */
 public class Initiate extends Message {
-    private Integer level;
-    private Edge coreEdge;
-    private Integer leader;
+    private int level;
+    private int coreEdge;
+    private int leader;
 
-    public Initiate(Integer sender, Integer receiver, Integer level, Edge coreEdge, Integer leader) {
+    public Initiate(int sender, int receiver, int level, int coreEdge, int leader) {
         super(sender, receiver);
         this.level = level;
         this.coreEdge = coreEdge;
         this.leader = leader;
     }
 
-    public Integer getLevel() {
+    Initiate init(int level, int coreEdge, int leader) {
+        this.level = level;
+        this.coreEdge = coreEdge;
+        this.leader = leader;
+        return this;
+    }
+
+    @Override
+    public MessageType getType() {
+        return MessageType.INITIATE;
+    }
+
+    @Override
+    public int getLevel() {
         return level;
     }
 
-    public Edge getCoreEdge() {
+    public int getCoreEdge() {
         return coreEdge;
     }
 
-    public Integer getLeader() {
+    @Override
+    public int getEdge() {
+        return coreEdge;
+    }
+
+    @Override
+    public int getLeader() {
         return leader;
     }
 
@@ -50,9 +67,9 @@ public class Initiate extends Message {
         if (o == null || getClass() != o.getClass()) return false;
         if (!super.equals(o)) return false;
         Initiate initiate = (Initiate) o;
-        return level.equals(initiate.level) &&
-                Objects.equals(coreEdge, initiate.coreEdge) &&
-                leader.equals(initiate.leader);
+        return level == initiate.level &&
+                coreEdge == initiate.coreEdge &&
+                leader == initiate.leader;
     }
 
     @Override
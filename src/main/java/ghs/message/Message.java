@@ -4,57 +4,128 @@ import java.util.Objects;
 
 /**
  * Represents the format of a {@code Message} to be sent in the network.
+ *
+ * <p>On the way from a sender's send buffer to the receiver, a message travels in the packed form of
+ * {@link MessageSlot}.</p>
  */
 public abstract class Message implements Comparable {
-    private Integer sender;
-    private Integer receiver;
-    private Integer round;
+    private int sender;
+    private int receiver;
+    private int round;
+    private boolean released;   // returned to a MessagePool, must not be used until handed out again
 
     public Message() {
         // setting sender and receiver responsibility of the message generator
     }
 
-    public Message(Integer sender) {
+    public Message(int sender) {
         this.sender = sender;
     }
 
-    public Message(Integer sender, Integer receiver) {
+    public Message(int sender, int receiver) {
         this.sender = sender;
         this.receiver = receiver;
     }
 
-    public Integer getSender() {
+    /**
+     * Gets the kind of this message.
+     *
+     * @return MessageType
+     */
+    public abstract MessageType getType();
+
+    public int getSender() {
+        checkLive();
         return sender;
     }
 
-    public void setSender(Integer sender) {
+    public void setSender(int sender) {
         this.sender = sender;
     }
 
-    public Integer getRound() {
+    public int getRound() {
+        checkLive();
         return round;
     }
 
-    public void setRound(Integer round) {
+    public void setRound(int round) {
         this.round = round;
     }
 
-    public Integer getReceiver() {
+    public int getReceiver() {
+        checkLive();
         return receiver;
     }
 
-    public void setReceiver(Integer receiver) {
+    public void setReceiver(int receiver) {
         this.receiver = receiver;
     }
 
+    /**
+     * Marks the message as released, see {@link MessagePool#release(Message)}.
+     *
+     * @return false if it was released already
+     */
+    boolean markReleased() {
+        if (this.released) {
+            return false;
+        }
+        this.released = true;
+        return true;
+    }
+
+    /**
+     * Clears the mark of a released message, when a {@link MessagePool} hands it out again.
+     */
+    void revive() {
+        this.released = false;
+    }
+
+    /**
+     * Fails if the message has been released while it was still in use.
+     */
+    void checkLive() {
+        if (this.released) {
+            throw new IllegalStateException("Use of a released " + getType() + " message, sent by " + this.sender +
+                    " to " + this.receiver + " in round " + this.round);
+        }
+    }
+
+    /**
+     * Gets the level carried by the message.
+     *
+     * @return level, 0 if the message carries none
+     */
+    public int getLevel() {
+        return 0;
+    }
+
+    /**
+     * Gets the leader carried by the message.
+     *
+     * @return leader id, -1 if the message carries none
+     */
+    public int getLeader() {
+        return -1;
+    }
+
+    /**
+     * Gets the edge carried by the message, i.e. a core edge or an mwoe.
+     *
+     * @return edge id, -1 if the message carries none
+     */
+    public int getEdge() {
+        return -1;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Message message = (Message) o;
-        return Objects.equals(sender, message.sender) &&
-                Objects.equals(receiver, message.receiver) &&
-                Objects.equals(round, message.round);
+        return sender == message.sender &&
+                receiver == message.receiver &&
+                round == message.round;
     }
 
     @Override
@@ -65,7 +136,7 @@ public abstract class Message implements Comparable {
     @Override
     public int compareTo(Object o) {
         Message m = ((Message) o);
-        return this.getRound().compareTo(m.getRound());
+        return Integer.compare(this.round, m.round);
     }
 
     @Override
@@ -0,0 +1,123 @@
+package ghs.message;
+
+import java.util.Arrays;
+
+/**
+ * The {@code MessagePool} recycles the messages the processes exchange during the search for the mwoe, so that a
+ * process does not allocate a new {@code Message} for every send.
+ *
+ * <p>A pool is confined to one thread: the messages are taken from it and released to it by the processes that
+ * thread runs, and nothing is synchronized. A message sent to a neighbor is packed into the neighbor's inbox when it
+ * is due, see {@link MessageSlot}, so it can be released right after; a message a process sends itself is released
+ * once it has been copied into the slot it is handled from. In steady state every send then takes a message that an
+ * earlier send released. Each kind of message has a free list of its own, which grows to the most messages of
+ * that kind ever released at once. A message waits in the send buffer for up to the longest delay before it is
+ * released, so a wave of sends, e.g. a {@code Test} from every process, is that large; with a fixed cap, the rest of
+ * each wave would be dropped and allocated again by the next one. The list never holds more messages than were in
+ * flight at the same time anyway.</p>
+ *
+ * <p>A released message is marked until it is handed out again: using it, or releasing it twice, throws an
+ * {@code IllegalStateException}. With system property {@code ghs.pool.debug} set to {@code true} the pool never hands
+ * a message out again, so every use after release is detected, at the cost of allocating as much as without a
+ * pool.</p>
+ */
+public class MessagePool {
+    private static final int INITIAL_FREE = 64;     // capacity of a free list when its first message is released
+    private static final boolean DEBUG = Boolean.getBoolean("ghs.pool.debug");
+
+    private Message[][] free = new Message[MessageType.values().length][];  // free lists, by type
+    private int[] freeCounts = new int[this.free.length];
+    private long allocated;
+    private long recycled;
+
+    /**
+     * Takes a released message of a kind.
+     *
+     * @param type kind of message
+     * @return the message, null if none is free
+     */
+    private Message take(MessageType type) {
+        int t = type.ordinal();
+        if (this.freeCounts[t] == 0) {
+            this.allocated++;
+            return null;
+        }
+        Message m = this.free[t][--this.freeCounts[t]];
+        this.free[t][this.freeCounts[t]] = null;
+        m.revive();
+        this.recycled++;
+        return m;
+    }
+
+    public Initiate initiate(int level, int coreEdge, int leader) {
+        Initiate m = (Initiate) take(MessageType.INITIATE);
+        return m != null ? m.init(level, coreEdge, leader) : new Initiate(-1, -1, level, coreEdge, leader);
+    }
+
+    public Test test(int coreEdge, int level) {
+        Test m = (Test) take(MessageType.TEST);
+        return m != null ? m.init(coreEdge, level) : new Test(-1, -1, coreEdge, level);
+    }
+
+    public Accept accept(int level) {
+        Accept m = (Accept) take(MessageType.ACCEPT);
+        return m != null ? m.init(level) : new Accept(level);
+    }
+
+    public Reject reject() {
+        Reject m = (Reject) take(MessageType.REJECT);
+        return m != null ? m : new Reject();
+    }
+
+    public Report report(int mwoe) {
+        Report m = (Report) take(MessageType.REPORT);
+        return m != null ? m.init(mwoe) : new Report(mwoe);
+    }
+
+    public ChangeRoot changeRoot(int mwoe) {
+        ChangeRoot m = (ChangeRoot) take(MessageType.CHANGE_ROOT);
+        return m != null ? m.init(mwoe) : new ChangeRoot(mwoe);
+    }
+
+    public Connect connect(int level, int mwoe) {
+        Connect m = (Connect) take(MessageType.CONNECT);
+        return m != null ? m.init(level, mwoe) : new Connect(level, mwoe);
+    }
+
+    public Finish finish() {
+        Finish m = (Finish) take(MessageType.FINISH);
+        return m != null ? m : new Finish();
+    }
+
+    public Result result(int edge) {
+        Result m = (Result) take(MessageType.RESULT);
+        return m != null ? m.init(edge) : new Result(edge);
+    }
+
+    /**
+     * Returns a message to the pool once nothing refers to it anymore, e.g. after it has been packed into an inbox.
+     *
+     * @param m a message taken from this pool
+     * @throws IllegalStateException if the message has been released already
+     */
+    public void release(Message m) {
+        if (!m.markReleased()) {
+            throw new IllegalStateException("Released twice: " + m.getType() + " message");
+        }
+        if (DEBUG) {
+            return;     // quarantined for good, any later use throws
+        }
+        int t = m.getType().ordinal();
+        if (this.free[t] == null) {
+            this.free[t] = new Message[INITIAL_FREE];
+        } else if (this.freeCounts[t] == this.free[t].length) {
+            this.free[t] = Arrays.copyOf(this.free[t], 2 * this.freeCounts[t]);
+        }
+        this.free[t][this.freeCounts[t]++] = m;
+    }
+
+    @Override
+    public String toString() {
+        return "Allocated " + this.allocated + " messages, recycled " + this.recycled + (DEBUG ? " (debug)" : "");
+    }
+}
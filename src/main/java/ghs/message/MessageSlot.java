@@ -0,0 +1,195 @@
+package ghs.message;
+
+/**
+ * A reusable, mutable view of one message, used on the hot path instead of the {@code Message} classes.
+ *
+ * <p>In transit, a message is packed into two {@code long} words and the id of the edge it carries, so packing and
+ * unpacking allocate nothing:</p>
+ * <ul>
+ * <li>head: sender (high 32 bits), round (low 32 bits)</li>
+ * <li>body: type tag (high 8 bits), level (next 24 bits), leader (low 32 bits)</li>
+ * </ul>
+ * <p>The receiver is not packed, it is the owner of the inbox the words are in. A process unpacks the messages it
+ * receives into a slot it owns and handles them from there. The {@code Message} classes remain as the form messages are
+ * created, logged and kept in, see {@link #toMessage()}.</p>
+ */
+public class MessageSlot {
+    private static final int LEVEL_MASK = 0xffffff;
+
+    private MessageType type;
+    private int sender;
+    private int receiver;
+    private int round;
+    private int level;
+    private int leader;
+    private int edge;
+    private int port;           // link the message arrived on at the receiver
+    private Message message;    // the message itself, for kinds that are never packed
+
+    /**
+     * Packs the sender and round of a message.
+     *
+     * @param m Message instance
+     * @return head word
+     */
+    public static long packHead(Message m) {
+        return ((long) m.getSender() << 32) | (m.getRound() & 0xffffffffL);
+    }
+
+    /**
+     * Packs the type, level and leader of a message.
+     *
+     * @param m Message instance
+     * @return body word
+     */
+    public static long packBody(Message m) {
+        m.checkLive();
+        return ((long) m.getType().ordinal() << 56) | ((long) (m.getLevel() & LEVEL_MASK) << 32) |
+                (m.getLeader() & 0xffffffffL);
+    }
+
+    /**
+     * Loads a packed message into this slot.
+     *
+     * @param head     head word
+     * @param body     body word
+     * @param edge     id of the edge carried by the message, or -1
+     * @param receiver id of the receiver
+     * @param port     link of the receiver the message arrived on
+     */
+    public void unpack(long head, long body, int edge, int receiver, int port) {
+        this.type = MessageType.of((int) (body >>> 56));
+        this.sender = (int) (head >>> 32);
+        this.round = (int) head;
+        this.level = (int) (body >>> 32) & LEVEL_MASK;
+        this.leader = (int) body;
+        this.edge = edge;
+        this.receiver = receiver;
+        this.port = port;
+        this.message = null;
+    }
+
+    /**
+     * Loads a message into this slot.
+     *
+     * @param m Message instance
+     */
+    public void set(Message m) {
+        copy(m);
+        this.message = m;
+    }
+
+    /**
+     * Loads the fields of a message into this slot, without keeping the message, so it can be released right after.
+     *
+     * @param m Message instance
+     */
+    public void copy(Message m) {
+        m.checkLive();
+        this.type = m.getType();
+        this.sender = m.getSender();
+        this.round = m.getRound();
+        this.level = m.getLevel();
+        this.leader = m.getLeader();
+        this.edge = m.getEdge();
+        this.receiver = m.getReceiver();
+        this.port = -1;
+        this.message = null;
+    }
+
+    public MessageType getType() {
+        return type;
+    }
+
+    public int getSender() {
+        return sender;
+    }
+
+    public int getReceiver() {
+        return receiver;
+    }
+
+    public int getRound() {
+        return round;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getLeader() {
+        return leader;
+    }
+
+    /**
+     * Gets the edge carried by the message: the core edge of a {@code Test} or an {@code Initiate}, the mwoe of a
+     * {@code Report}, a {@code ChangeRoot} or a {@code Connect}.
+     *
+     * @return edge id, -1 if the message carries none
+     */
+    public int getEdge() {
+        return edge;
+    }
+
+    /**
+     * Gets the link of the receiver the message arrived on.
+     *
+     * @return port, -1 for a message that did not come over a link, e.g. one I sent myself or one loaded with
+     * {@link #set(Message)}
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Builds the {@code Message} this slot holds, e.g. to keep it after the slot is reused.
+     *
+     * @return a new Message, or the message the slot was loaded from
+     */
+    public Message toMessage() {
+        if (this.message != null) {
+            return this.message;
+        }
+        Message m;
+        switch (this.type) {
+            case INITIATE:
+                m = new Initiate(this.sender, this.receiver, this.level, this.edge, this.leader);
+                break;
+            case TEST:
+                m = new Test(this.sender, this.receiver, this.edge, this.level);
+                break;
+            case ACCEPT:
+                m = new Accept(this.level);
+                break;
+            case REJECT:
+                m = new Reject();
+                break;
+            case REPORT:
+                m = new Report(this.edge);
+                break;
+            case CHANGE_ROOT:
+                m = new ChangeRoot(this.edge);
+                break;
+            case CONNECT:
+                m = new Connect(this.level, this.edge);
+                break;
+            case FINISH:
+                m = new Finish();
+                break;
+            case RESULT:
+                m = new Result(this.edge);
+                break;
+            default:
+                m = new Exit(this.sender);
+        }
+        m.setSender(this.sender);
+        m.setReceiver(this.receiver);
+        m.setRound(this.round);
+        return m;
+    }
+
+    @Override
+    public String toString() {
+        return toMessage().toString();
+    }
+}
@@ -0,0 +1,29 @@
+package ghs.message;
+
+/**
+ * Identifies the kind of a message in its packed form, see {@link MessageSlot}.
+ */
+public enum MessageType {
+    INITIATE,
+    TEST,
+    ACCEPT,
+    REJECT,
+    REPORT,
+    CHANGE_ROOT,
+    CONNECT,
+    FINISH,
+    RESULT,
+    EXIT;
+
+    private static final MessageType[] VALUES = values();
+
+    /**
+     * Looks up a type by its tag without allocating.
+     *
+     * @param tag ordinal of the type
+     * @return MessageType
+     */
+    public static MessageType of(int tag) {
+        return VALUES[tag];
+    }
+}
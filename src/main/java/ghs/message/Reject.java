@@ -7,6 +7,11 @@ public class Reject extends Message {
     public Reject() {
     }
 
+    @Override
+    public MessageType getType() {
+        return MessageType.REJECT;
+    }
+
     @Override
     public String toString() {
         return "Reject{" +
@@ -1,20 +1,33 @@
 package ghs.message;
 
-import edu.princeton.cs.algs4.Edge;
-
 import java.util.Objects;
 
 /**
  * Represents a {@code Report} message, that convergecasts information about mwoe to the leader.
  */
 public class Report extends Message implements Comparable {
-    private Edge mwoe;
+    private int mwoe;
+
+    public Report(int mwoe) {
+        this.mwoe = mwoe;
+    }
 
-    public Report(Edge mwoe) {
+    Report init(int mwoe) {
         this.mwoe = mwoe;
+        return this;
     }
 
-    public Edge getMwoe() {
+    @Override
+    public MessageType getType() {
+        return MessageType.REPORT;
+    }
+
+    public int getMwoe() {
+        return mwoe;
+    }
+
+    @Override
+    public int getEdge() {
         return mwoe;
     }
 
@@ -24,7 +37,7 @@ public class Report extends Message implements Comparable {
         if (o == null || getClass() != o.getClass()) return false;
         if (!super.equals(o)) return false;
         Report report = (Report) o;
-        return Objects.equals(mwoe, report.mwoe);
+        return mwoe == report.mwoe;
     }
 
     @Override
@@ -0,0 +1,45 @@
+package ghs.message;
+
+/**
+ * Sent to the parent in response to a {@code Finish}, to stream the edges of the sender's subtree up to the leader.
+ *
+ * <p>Every edge of the subtree travels in a {@code Result} of its own, and a last {@code Result} without an edge tells
+ * the parent that the subtree is complete. A link is FIFO, so it arrives after every edge of the subtree.</p>
+ */
+public class Result extends Message {
+    private int edge;
+
+    /**
+     * Creates a {@code Result}.
+     *
+     * @param edge an edge of the subtree, -1 to mark the end of the subtree
+     */
+    public Result(int edge) {
+        this.edge = edge;
+    }
+
+    Result init(int edge) {
+        this.edge = edge;
+        return this;
+    }
+
+    @Override
+    public MessageType getType() {
+        return MessageType.RESULT;
+    }
+
+    @Override
+    public int getEdge() {
+        return edge;
+    }
+
+    @Override
+    public String toString() {
+        return "Result{" +
+                this.getSender() +
+                " ===> " + this.getReceiver() +
+                ", edge=" + edge +
+                ", round=" + getRound() +
+                "}";
+    }
+}
@@ -1,27 +1,42 @@
 package ghs.message;
 
-import edu.princeton.cs.algs4.Edge;
-
 /**
  * Represents a {@code Test} message a process sends on its basic edge.
  *
  * <p>This is part of the test-accept-reject protocol in which the current process searches for its mwoe.</p>
  */
 public class Test extends Message implements Comparable {
-    Edge coreEdge;
-    private Integer level;
+    int coreEdge;
+    private int level;
 
-    public Test(Integer sender, Integer receiver, Edge coreEdge, Integer level) {
+    public Test(int sender, int receiver, int coreEdge, int level) {
         super(sender, receiver);
         this.coreEdge = coreEdge;
         this.level = level;
     }
 
-    public Integer getLevel() {
+    Test init(int coreEdge, int level) {
+        this.coreEdge = coreEdge;
+        this.level = level;
+        return this;
+    }
+
+    @Override
+    public MessageType getType() {
+        return MessageType.TEST;
+    }
+
+    @Override
+    public int getLevel() {
         return level;
     }
 
-    public Edge getCoreEdge() {
+    public int getCoreEdge() {
+        return coreEdge;
+    }
+
+    @Override
+    public int getEdge() {
         return coreEdge;
     }
 
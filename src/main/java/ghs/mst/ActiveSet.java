@@ -0,0 +1,160 @@
+package ghs.mst;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The {@code ActiveSet} tracks which of the processes an engine thread runs have work in the current round, so the
+ * thread only steps those through the round while the others stay dormant.
+ *
+ * <p>A process is active in a round when a message of its send buffer is due in it, when it has deferred replies left
+ * from the previous round, or when a message is delivered to it. The processes report the first and the last through
+ * {@link Scheduler}; the engine thread reports the messages it unpacks from batches the same way. Dormant processes are
+ * kept in an agenda keyed by the round they are due in, as in the {@link SimulationThread}, and their clocks are
+ * moved forward when they become active again. The cost of a round thus depends on the active processes only.</p>
+ *
+ * <p>Only the engine thread touches the set, so nothing in it is synchronized.</p>
+ */
+class ActiveSet implements Scheduler {
+    private List<Process> processes;    // every process of the thread
+    private TreeMap<Integer, List<Process>> agenda = new TreeMap<>();   // round -> dormant processes due in it
+    private List<Process> active = new ArrayList<>();                 // processes active in the current round
+    private int[] activeRound;          // last round in which each process was activated, indexed by uid
+    private int round = -1;
+    private int exited;                 // processes that have sent EXIT
+
+    // statistics
+    private long activations;
+    private long rounds;
+
+    /**
+     * Creates the active set of a group of processes, all dormant, and registers it as their scheduler.
+     *
+     * @param processes processes of the thread
+     * @param V         number of processes in the network
+     */
+    ActiveSet(List<Process> processes, int V) {
+        this.processes = processes;
+        this.activeRound = new int[V];
+        Arrays.fill(this.activeRound, -1);
+        for (Process p : processes) {
+            p.setScheduler(this);
+        }
+    }
+
+    @Override
+    public void wakeAt(Process p, int round) {
+        if (round <= this.round) {
+            activate(p);
+        } else {
+            this.agenda.computeIfAbsent(round, r -> new ArrayList<>()).add(p);
+        }
+    }
+
+    /**
+     * Activates a process in the current round, unless it is already active.
+     *
+     * @param p Process instance
+     */
+    private void activate(Process p) {
+        if (this.activeRound[p.getUid()] != this.round) {
+            this.activeRound[p.getUid()] = this.round;
+            p.setRound(this.round);
+            this.active.add(p);
+        }
+    }
+
+    /**
+     * Starts a round, activating the processes due in it.
+     *
+     * @param round the round
+     */
+    void begin(int round) {
+        this.round = round;
+        this.active.clear();
+        while (!this.agenda.isEmpty() && this.agenda.firstKey() <= round) {
+            Map.Entry<Integer, List<Process>> due = this.agenda.pollFirstEntry();
+            for (Process p : due.getValue()) {
+                activate(p);
+            }
+        }
+        this.rounds++;
+    }
+
+    /**
+     * Activates every process in the current round, e.g. to deliver their wake up messages or the KILL of the master.
+     */
+    void activateAll() {
+        for (Process p : this.processes) {
+            activate(p);
+        }
+    }
+
+    /**
+     * Gets the processes active in the current round. Processes activated by deliveries are appended as the round
+     * goes.
+     *
+     * @return active processes
+     */
+    List<Process> getActive() {
+        return this.active;
+    }
+
+    /**
+     * Computes the earliest round in which a process of the thread has something to do.
+     *
+     * @return due round, {@code Integer.MAX_VALUE} if none
+     */
+    int dueRound() {
+        int due = this.agenda.isEmpty() ? Integer.MAX_VALUE : this.agenda.firstKey();
+        for (Process p : this.active) {
+            due = Math.min(due, p.nextDueRound());
+        }
+        return due;
+    }
+
+    /**
+     * Ends the round for the active processes.
+     *
+     * @param nextRound the round to move on to
+     * @return true if some process received KILL from the master
+     */
+    boolean finish(int nextRound) {
+        boolean killed = false;
+        for (Process p : this.active) {
+            boolean exitSent = p.hasSentExit();
+            killed |= p.finishRound(nextRound);
+            if (!exitSent && p.hasSentExit()) {
+                this.exited++;
+            }
+            if (p.hasDeferredReplies()) {
+                wakeAt(p, this.round + 1);
+            }
+        }
+        this.activations += this.active.size();
+        return killed;
+    }
+
+    /**
+     * Checks whether every process of the thread has sent EXIT.
+     *
+     * @return true if done
+     */
+    boolean allExited() {
+        return this.exited == this.processes.size();
+    }
+
+    /**
+     * Describes how many processes were stepped through the rounds, for the engine thread to report.
+     *
+     * @return statistics
+     */
+    String describe() {
+        return "Stepped " + this.activations + " processes through " + this.rounds + " rounds, " +
+                String.format("%.1f", this.rounds == 0 ? 0.0 : (double) this.activations / this.rounds) +
+                " of " + this.processes.size() + " active per round on average.";
+    }
+}
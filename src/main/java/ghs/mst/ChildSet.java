@@ -0,0 +1,141 @@
+package ghs.mst;
+
+import java.util.Arrays;
+
+/**
+ * The {@code ChildSet} holds the children of a process in its current component, and which of them have sent their
+ * {@code Report} in the current phase.
+ *
+ * <p>Both are bitsets indexed by port. Two counters keep track of how far the sets are apart: the children that have
+ * not reported yet, and the reports from processes that are not children (anymore). The process has heard from all
+ * its children when both are zero, which is checked on every {@code Accept}, {@code Reject} and {@code Report} in
+ * constant time. Nothing is boxed or allocated after construction.</p>
+ */
+class ChildSet {
+    private long[] children;    // one bit per port that leads to a child
+    private long[] reported;    // one bit per port a Report arrived on in this phase
+    private int size;           // number of children
+    private int unreported;     // children that have not reported
+    private int strayReports;   // reports from ports that don't lead to a child
+
+    /**
+     * Creates an empty set.
+     *
+     * @param degree number of links of the process
+     */
+    ChildSet(int degree) {
+        this.children = new long[(degree + 63) >>> 6];
+        this.reported = new long[this.children.length];
+    }
+
+    private static boolean get(long[] bits, int port) {
+        return (bits[port >>> 6] & (1L << port)) != 0;
+    }
+
+    /**
+     * Adds a child.
+     *
+     * @param port link to the child
+     */
+    void add(int port) {
+        if (get(this.children, port)) {
+            return;
+        }
+        this.children[port >>> 6] |= 1L << port;
+        this.size++;
+        if (get(this.reported, port)) {
+            this.strayReports--;
+        } else {
+            this.unreported++;
+        }
+    }
+
+    /**
+     * Removes a child, e.g. one that became my parent.
+     *
+     * @param port link to the child
+     */
+    void remove(int port) {
+        if (!get(this.children, port)) {
+            return;
+        }
+        this.children[port >>> 6] &= ~(1L << port);
+        this.size--;
+        if (get(this.reported, port)) {
+            this.strayReports++;
+        } else {
+            this.unreported--;
+        }
+    }
+
+    boolean contains(int port) {
+        return get(this.children, port);
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Records a report.
+     *
+     * @param port link the report arrived on
+     */
+    void report(int port) {
+        if (get(this.reported, port)) {
+            return;
+        }
+        this.reported[port >>> 6] |= 1L << port;
+        if (get(this.children, port)) {
+            this.unreported--;
+        } else {
+            this.strayReports++;
+        }
+    }
+
+    /**
+     * Forgets the reports, at the start of a phase.
+     */
+    void clearReports() {
+        if (this.unreported == this.size && this.strayReports == 0) {
+            return;     // nothing reported
+        }
+        Arrays.fill(this.reported, 0);
+        this.unreported = this.size;
+        this.strayReports = 0;
+    }
+
+    /**
+     * Checks whether exactly my children have reported.
+     *
+     * @return true if every child and nobody else has reported, also if I have no children
+     */
+    boolean allReported() {
+        return this.unreported == 0 && this.strayReports == 0;
+    }
+
+    /**
+     * Finds the next child, for iterating over the children.
+     *
+     * @param port first link to look at
+     * @return lowest link to a child from {@code port} on, -1 if there is none
+     */
+    int next(int port) {
+        int w = port >>> 6;
+        if (w >= this.children.length) {
+            return -1;
+        }
+        long bits = this.children[w] & (-1L << port);
+        while (bits == 0) {
+            if (++w == this.children.length) {
+                return -1;
+            }
+            bits = this.children[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(bits);
+    }
+}
@@ -0,0 +1,70 @@
+package ghs.mst;
+
+import java.util.Arrays;
+
+/**
+ * The {@code EdgeList} collects the edges of the final spanning tree at the leader, as they are streamed up to it.
+ *
+ * <p>The ids are kept in a chain of fixed-size chunks, so the list grows without ever copying the ids collected so
+ * far, and the leader of a large component does not need a contiguous array until it sends the tree to the
+ * master.</p>
+ */
+class EdgeList {
+    private static final int CHUNK = 64;    // ids per chunk
+
+    /**
+     * A chunk of ids, the first {@code size} of which are valid.
+     */
+    private static class Chunk {
+        private int[] ids = new int[CHUNK];
+        private int size;
+        private Chunk next;
+    }
+
+    private Chunk first;
+    private Chunk last;
+    private int size;
+
+    /**
+     * Adds an edge.
+     *
+     * @param edge edge id
+     */
+    void add(int edge) {
+        if (this.last == null || this.last.size == CHUNK) {
+            Chunk chunk = new Chunk();
+            if (this.last == null) {
+                this.first = chunk;
+            } else {
+                this.last.next = chunk;
+            }
+            this.last = chunk;
+        }
+        this.last.ids[this.last.size++] = edge;
+        this.size++;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Copies the edges into an array.
+     *
+     * @return edge ids, in the order they were collected
+     */
+    int[] toArray() {
+        int[] edges = new int[this.size];
+        int n = 0;
+        for (Chunk chunk = this.first; chunk != null; chunk = chunk.next) {
+            System.arraycopy(chunk.ids, 0, edges, n, chunk.size);
+            n += chunk.size;
+        }
+        return edges;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
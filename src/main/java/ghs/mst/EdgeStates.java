@@ -0,0 +1,201 @@
+package ghs.mst;
+
+import ghs.graph.CompactGraph;
+
+import java.util.Arrays;
+
+/**
+ * The {@code EdgeStates} keeps the state of every link of a process, in the terms of GHS: basic, branch or rejected.
+ *
+ * <p>The links are sorted by the weight of their edges once, when the process is spawned. A cursor points at the
+ * lightest link that may still be basic, so finding the next edge to test costs amortized constant time, and every
+ * change of state is a store into an array indexed by port. A basic edge that is being tested is taken out of the basic
+ * edges, as it was polled off a queue, and put back when the test is accepted; the cursor moves back to it then.</p>
+ *
+ * <p>The branch links are also listed in the order they became branches, for broadcasting over them without a scan
+ * of all links.</p>
+ */
+class EdgeStates {
+    private static final byte BASIC = 0;
+    private static final byte TESTING = 1;      // basic, but taken out while a Test over it is answered
+    private static final byte BRANCH = 2;
+    private static final byte REJECTED = 3;
+    private static final int INSERTION_SORT = 16;   // shorter runs are sorted by insertion
+
+    private CompactGraph graph;
+    private int uid;
+    private int[] order;        // ports, lightest edge first
+    private int[] rank;         // position of each port in the order
+    private byte[] states;      // state of each port
+    private int cursor;         // every port before it in the order is not basic
+    private int[] branches;     // branch ports, the first branchCount are valid
+    private int branchCount;
+
+    /**
+     * Sorts the links of a process, all basic.
+     *
+     * @param graph the graph
+     * @param uid   the process
+     */
+    EdgeStates(CompactGraph graph, int uid) {
+        this.graph = graph;
+        this.uid = uid;
+        int degree = graph.degree(uid);
+        this.order = new int[degree];
+        for (int port = 0; port < degree; port++) {
+            this.order[port] = port;
+        }
+        sort(this.order, new int[degree], 0, degree);
+        this.rank = new int[degree];
+        for (int i = 0; i < degree; i++) {
+            this.rank[this.order[i]] = i;
+        }
+        this.states = new byte[degree];
+        this.branches = new int[Math.max(1, Math.min(degree, 4))];
+    }
+
+    /**
+     * Compares two links by the weight of their edges, ties broken by edge id.
+     *
+     * @param port  a link
+     * @param other another link
+     * @return negative, zero or positive as the edge of port is lighter than, the same as or heavier than the other
+     */
+    private int compare(int port, int other) {
+        return this.graph.compare(this.graph.edge(this.uid, port), this.graph.edge(this.uid, other));
+    }
+
+    /**
+     * Merge sorts a range of ports by weight, without boxing them.
+     *
+     * @param ports the ports
+     * @param tmp   scratch space as long as {@code ports}
+     * @param from  first position of the range
+     * @param to    position after the range
+     */
+    private void sort(int[] ports, int[] tmp, int from, int to) {
+        if (to - from <= INSERTION_SORT) {
+            for (int i = from + 1; i < to; i++) {
+                int port = ports[i];
+                int j = i - 1;
+                while (j >= from && compare(ports[j], port) > 0) {
+                    ports[j + 1] = ports[j];
+                    j--;
+                }
+                ports[j + 1] = port;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        sort(ports, tmp, from, mid);
+        sort(ports, tmp, mid, to);
+        System.arraycopy(ports, from, tmp, from, to - from);
+        int i = from;
+        int j = mid;
+        for (int k = from; k < to; k++) {
+            if (j == to || (i < mid && compare(tmp[i], tmp[j]) <= 0)) {
+                ports[k] = tmp[i++];
+            } else {
+                ports[k] = tmp[j++];
+            }
+        }
+    }
+
+    /**
+     * Takes the lightest basic edge out of the basic edges, to test it.
+     *
+     * @return its port, -1 if no basic edge is left
+     */
+    int pollBasic() {
+        while (this.cursor < this.order.length && this.states[this.order[this.cursor]] != BASIC) {
+            this.cursor++;
+        }
+        if (this.cursor == this.order.length) {
+            return -1;
+        }
+        int port = this.order[this.cursor++];
+        this.states[port] = TESTING;
+        return port;
+    }
+
+    /**
+     * Puts an edge back into the basic edges, once its test is accepted.
+     *
+     * @param port the link
+     */
+    void accept(int port) {
+        if (this.states[port] == TESTING) {
+            this.states[port] = BASIC;
+            this.cursor = Math.min(this.cursor, this.rank[port]);
+        }
+    }
+
+    /**
+     * Rejects an edge, it leads into my own component and is never tested again.
+     *
+     * @param port the link
+     */
+    void reject(int port) {
+        if (this.states[port] != BRANCH) {
+            this.states[port] = REJECTED;
+        }
+    }
+
+    /**
+     * Makes an edge a branch of the spanning tree.
+     *
+     * @param port the link
+     */
+    void branch(int port) {
+        if (this.states[port] == BRANCH) {
+            return;
+        }
+        this.states[port] = BRANCH;
+        if (this.branchCount == this.branches.length) {
+            this.branches = Arrays.copyOf(this.branches, 2 * this.branchCount);
+        }
+        this.branches[this.branchCount++] = port;
+    }
+
+    int branchCount() {
+        return this.branchCount;
+    }
+
+    /**
+     * Gets a branch link.
+     *
+     * @param i position in the order the branches were made, below {@link #branchCount()}
+     * @return its port
+     */
+    int branchPort(int i) {
+        return this.branches[i];
+    }
+
+    /**
+     * Lists the edges in one state, for logging.
+     *
+     * @param state BASIC, BRANCH or REJECTED
+     * @return edge ids, lightest first
+     */
+    private String describe(byte state) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int port : this.order) {
+            if (this.states[port] == state) {
+                sb.append(sb.length() > 1 ? ", " : "").append(this.graph.edge(this.uid, port));
+            }
+        }
+        return sb.append(']').toString();
+    }
+
+    String describeBasic() {
+        return describe(BASIC);
+    }
+
+    String describeBranches() {
+        return describe(BRANCH);
+    }
+
+    String describeRejected() {
+        return describe(REJECTED);
+    }
+}
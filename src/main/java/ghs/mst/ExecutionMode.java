@@ -0,0 +1,37 @@
+package ghs.mst;
+
+/**
+ * The {@code ExecutionMode} selects how the {@link MasterThread} runs the {@code Process} state machines.
+ */
+public enum ExecutionMode {
+    /**
+     * Every {@code Process} runs on its own platform thread, all of them synchronizing on one barrier.
+     */
+    THREAD_PER_VERTEX,
+
+    /**
+     * Every {@code Process} runs on its own virtual thread.
+     *
+     * <p>The processes wait on the same barrier as in {@link #THREAD_PER_VERTEX}. A waiting process parks, or waits on
+     * the {@code ReentrantLock} of a {@code CyclicBarrier}, so it unmounts from its carrier thread instead of pinning
+     * it. Spinning wait strategies would pin the carriers and must not be used in this mode.</p>
+     */
+    VIRTUAL_THREAD_PER_VERTEX,
+
+    /**
+     * The processes are multiplexed over a fixed pool of {@link WorkerThread}s, one per available core.
+     */
+    POOLED,
+
+    /**
+     * A single {@link SimulationThread} runs the processes as a discrete-event simulation, skipping the rounds in which
+     * nothing is due.
+     */
+    EVENT_DRIVEN,
+
+    /**
+     * The network is split into shards that run in separate JVMs, each advancing its processes on a
+     * {@link ShardThread}. Messages between shards travel over a {@code ghs.transport.Transport}.
+     */
+    SHARDED
+}
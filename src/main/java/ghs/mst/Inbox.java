@@ -0,0 +1,237 @@
+package ghs.mst;
+
+import ghs.message.Message;
+import ghs.message.MessagePool;
+import ghs.message.MessageSlot;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * The {@code Inbox} holds the messages delivered to a {@code Process}.
+ *
+ * <p>Every incoming link has its own single-producer/single-consumer ring buffer: only the neighbor at the other end
+ * of the link writes to it and only the owner of the inbox reads from it, so senders never contend on a lock and an
+ * insert is a couple of plain writes. The rings of all links are laid out in flat arrays indexed by port, the position
+ * of the link in the owner's edge list. A bitset, also indexed by port, marks the links with unread messages, so
+ * draining the inbox costs time proportional to the messages in it rather than to the degree of the owner. A slot holds
+ * a message in the packed form of {@link MessageSlot}: two words and the id of the edge the message carries. Nothing is
+ * allocated to pass a message along a link.</p>
+ *
+ * <p>Messages are delivered in the round they are due and handled in the same round, and
+ * {@code Process.getNextRound} never schedules two messages over one link in the same round. Every message in the
+ * rings is therefore due in the current round, and draining the links one after the other delivers them in round
+ * order while keeping each link FIFO. Messages a process sends to itself and the messages of the master take separate
+ * queues.</p>
+ *
+ * <p>When the neighbor at the other end of a link runs on the same thread as the owner, e.g. both belong to the same
+ * worker of the pool, it delivers through {@link #offerPlain(int, Message)} instead: the same ring, written with plain
+ * stores, and a separate bitset that only that thread touches. A link always uses the same path, as the processes of a
+ * network never change threads.</p>
+ */
+class Inbox {
+    private static final int LINK_CAPACITY = 2;     // power of two, a link carries one message per round
+    private static final VarHandle COUNTERS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle READY = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private int owner;          // id of the process the inbox belongs to
+    private long[] words;       // LINK_CAPACITY slots per link, two words per slot
+    private int[] edges;        // LINK_CAPACITY slots per link, edge carried by the message in the slot
+    private int[] heads;        // per link, count of messages read, written by the owner
+    private int[] tails;        // per link, count of messages written, written by the neighbor
+    private long[] ready;       // one bit per link that may have unread messages
+    private long[] plainReady;  // same, for the links whose neighbor runs on the owner's thread
+
+    // drain cursor
+    private int word;           // next word to load, first of ready, then of plainReady
+    private long pending;       // bits of the last word loaded still to drain
+    private int pendingBase;    // port of bit 0 of that word
+
+    private Queue<Message> local = new ArrayDeque<>();                  // messages to myself, only I touch it
+    private Queue<Message> control = new ConcurrentLinkedQueue<>();     // messages from the master
+
+    /**
+     * Creates the inbox of a process.
+     *
+     * @param owner  id of the process
+     * @param degree number of links of the process
+     */
+    Inbox(int owner, int degree) {
+        this.owner = owner;
+        this.words = new long[2 * degree * LINK_CAPACITY];
+        this.edges = new int[degree * LINK_CAPACITY];
+        this.heads = new int[degree];
+        this.tails = new int[degree];
+        this.ready = new long[(degree + 63) >>> 6];
+        this.plainReady = new long[this.ready.length];
+    }
+
+    /**
+     * Appends a message to the ring of a link. Must only be called by the neighbor at the other end of the link.
+     *
+     * @param port the link, as numbered by the owner of the inbox
+     * @param m    Message instance
+     */
+    void offer(int port, Message m) {
+        offer(port, MessageSlot.packHead(m), MessageSlot.packBody(m), m.getEdge());
+    }
+
+    /**
+     * Appends a message in packed form to the ring of a link, e.g. one that arrived from another shard. Must only be
+     * called by the neighbor at the other end of the link, or by whoever delivers its messages.
+     *
+     * @param port the link, as numbered by the owner of the inbox
+     * @param head head word, see {@link MessageSlot#packHead(Message)}
+     * @param body body word, see {@link MessageSlot#packBody(Message)}
+     * @param edge id of the edge carried by the message, or -1
+     */
+    void offer(int port, long head, long body, int edge) {
+        int tail = this.tails[port];
+        if (tail - (int) COUNTERS.getAcquire(this.heads, port) == LINK_CAPACITY) {
+            throw new IllegalStateException("Link " + port + " of " + this.owner + " overflows");
+        }
+        int slot = port * LINK_CAPACITY + (tail & (LINK_CAPACITY - 1));
+        this.words[2 * slot] = head;
+        this.words[2 * slot + 1] = body;
+        this.edges[slot] = edge;
+        COUNTERS.setRelease(this.tails, port, tail + 1);    // publishes the slot
+        long bit = 1L << port;
+        int w = port >>> 6;
+        if (((long) READY.getVolatile(this.ready, w) & bit) == 0) {
+            READY.getAndBitwiseOr(this.ready, w, bit);
+        }
+    }
+
+    /**
+     * Appends a message to the ring of a link without any synchronization. Must only be called by the neighbor at the
+     * other end of the link, and only if it runs on the same thread as the owner of the inbox.
+     *
+     * @param port the link, as numbered by the owner of the inbox
+     * @param m    Message instance
+     */
+    void offerPlain(int port, Message m) {
+        offerPlain(port, MessageSlot.packHead(m), MessageSlot.packBody(m), m.getEdge());
+    }
+
+    /**
+     * Appends a message in packed form to the ring of a link without any synchronization, e.g. one from a
+     * {@link MessageBatch}. Must only be called by the thread that runs the owner of the inbox.
+     *
+     * @param port the link, as numbered by the owner of the inbox
+     * @param head head word, see {@link MessageSlot#packHead(Message)}
+     * @param body body word, see {@link MessageSlot#packBody(Message)}
+     * @param edge id of the edge carried by the message, or -1
+     */
+    void offerPlain(int port, long head, long body, int edge) {
+        int tail = this.tails[port];
+        if (tail - this.heads[port] == LINK_CAPACITY) {
+            throw new IllegalStateException("Link " + port + " of " + this.owner + " overflows");
+        }
+        int slot = port * LINK_CAPACITY + (tail & (LINK_CAPACITY - 1));
+        this.words[2 * slot] = head;
+        this.words[2 * slot + 1] = body;
+        this.edges[slot] = edge;
+        this.tails[port] = tail + 1;
+        this.plainReady[port >>> 6] |= 1L << port;
+    }
+
+    /**
+     * Appends a message I send to myself.
+     *
+     * @param m Message instance
+     */
+    void offerLocal(Message m) {
+        this.local.add(m);
+    }
+
+    /**
+     * Appends a message from the master. Safe to call from any thread.
+     *
+     * @param m Message instance
+     */
+    void offerControl(Message m) {
+        this.control.add(m);
+    }
+
+    /**
+     * Takes the next message from the ring of a link.
+     *
+     * @param port the link
+     * @param into slot to unpack the oldest unread message of the link into
+     * @return false if the link has no unread message
+     */
+    private boolean pollLink(int port, MessageSlot into) {
+        int head = this.heads[port];
+        if (head == (int) COUNTERS.getAcquire(this.tails, port)) {
+            return false;
+        }
+        int slot = port * LINK_CAPACITY + (head & (LINK_CAPACITY - 1));
+        into.unpack(this.words[2 * slot], this.words[2 * slot + 1], this.edges[slot], this.owner, port);
+        COUNTERS.setRelease(this.heads, port, head + 1);    // frees the slot
+        return true;
+    }
+
+    /**
+     * Takes the next unread message from the links marked ready.
+     *
+     * @param into slot to unpack the message into
+     * @return false once every link has been drained
+     */
+    private boolean pollLinks(MessageSlot into) {
+        while (true) {
+            if (this.pending != 0) {
+                int port = this.pendingBase + Long.numberOfTrailingZeros(this.pending);
+                if (pollLink(port, into)) {
+                    return true;
+                }
+                this.pending &= this.pending - 1;   // link drained
+            } else if (this.word < this.ready.length) {
+                if ((long) READY.getVolatile(this.ready, this.word) != 0) {
+                    this.pending = (long) READY.getAndSet(this.ready, this.word, 0L);
+                    this.pendingBase = this.word << 6;
+                }
+                this.word++;
+            } else if (this.word < 2 * this.ready.length) {
+                int w = this.word - this.ready.length;
+                this.pending = this.plainReady[w];
+                this.pendingBase = w << 6;
+                this.plainReady[w] = 0;
+                this.word++;
+            } else {
+                this.word = 0;
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Takes the next message to handle. Must only be called by the owner of the inbox.
+     *
+     * <p>A message I sent myself is copied into the slot and released, like the messages that arrive packed over a
+     * link. The messages of the master are shared by all processes, so the slot refers to them instead.</p>
+     *
+     * @param into slot to load the message into
+     * @param pool pool the messages I send myself were taken from
+     * @return false if the inbox is empty
+     */
+    boolean poll(MessageSlot into, MessagePool pool) {
+        Message m = this.local.poll();
+        if (m != null) {
+            into.copy(m);
+            pool.release(m);
+            return true;
+        }
+        if (pollLinks(into)) {
+            return true;
+        }
+        m = this.control.poll();
+        if (m == null) {
+            return false;
+        }
+        into.set(m);
+        return true;
+    }
+}
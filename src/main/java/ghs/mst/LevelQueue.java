@@ -0,0 +1,127 @@
+package ghs.mst;
+
+import ghs.message.Message;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The {@code LevelQueue} holds the messages a process can't handle before its level has grown, i.e. deferred
+ * {@code Test}s and pending {@code Connect}s, in one FIFO bucket per level they carry.
+ *
+ * <p>Levels stay below the logarithm of the number of processes, so the buckets are a short list indexed by level,
+ * and the queue keeps the lowest level that has messages. When the level of the process grows, exactly the messages it
+ * unblocks are taken from the lowest buckets, in time proportional to their number; a message never waits behind one
+ * of a higher level.</p>
+ *
+ * @param <M> kind of message
+ */
+class LevelQueue<M extends Message> {
+    private List<ArrayDeque<M>> buckets = new ArrayList<>();    // messages by the level they carry
+    private int minLevel = Integer.MAX_VALUE;   // lowest level with messages
+    private int size;
+
+    /**
+     * Adds a message to the bucket of its level.
+     *
+     * @param m Message instance
+     */
+    void add(M m) {
+        int level = m.getLevel();
+        while (this.buckets.size() <= level) {
+            this.buckets.add(null);
+        }
+        ArrayDeque<M> bucket = this.buckets.get(level);
+        if (bucket == null) {
+            bucket = new ArrayDeque<>();
+            this.buckets.set(level, bucket);
+        }
+        bucket.add(m);
+        this.minLevel = Math.min(this.minLevel, level);
+        this.size++;
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Gets the lowest level that has messages.
+     *
+     * @return level, {@code Integer.MAX_VALUE} if the queue is empty
+     */
+    int minLevel() {
+        return this.minLevel;
+    }
+
+    /**
+     * Takes the oldest message of the lowest level, if that level is low enough.
+     *
+     * @param level highest level to take a message of
+     * @return the message, null if there is none at or below the level
+     */
+    M pollAtMost(int level) {
+        if (this.minLevel > level) {
+            return null;
+        }
+        ArrayDeque<M> bucket = this.buckets.get(this.minLevel);
+        M m = bucket.poll();
+        this.size--;
+        if (bucket.isEmpty()) {
+            advance();
+        }
+        return m;
+    }
+
+    /**
+     * Takes the message of a level that carries a certain edge.
+     *
+     * @param level level of the message
+     * @param edge  edge id the message carries
+     * @return the message, null if there is none
+     */
+    M remove(int level, int edge) {
+        if (level < this.minLevel || level >= this.buckets.size() || this.buckets.get(level) == null) {
+            return null;
+        }
+        Iterator<M> it = this.buckets.get(level).iterator();
+        while (it.hasNext()) {
+            M m = it.next();
+            if (m.getEdge() == edge) {
+                it.remove();
+                this.size--;
+                if (level == this.minLevel && this.buckets.get(level).isEmpty()) {
+                    advance();
+                }
+                return m;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Moves the lowest level up to the next bucket with messages.
+     */
+    private void advance() {
+        while (++this.minLevel < this.buckets.size()) {
+            ArrayDeque<M> bucket = this.buckets.get(this.minLevel);
+            if (bucket != null && !bucket.isEmpty()) {
+                return;
+            }
+        }
+        this.minLevel = Integer.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        List<M> all = new ArrayList<>(this.size);
+        for (ArrayDeque<M> bucket : this.buckets) {
+            if (bucket != null) {
+                all.addAll(bucket);
+            }
+        }
+        return all.toString();
+    }
+}
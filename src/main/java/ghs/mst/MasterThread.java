@@ -1,84 +1,276 @@
 package ghs.mst;
 
-import edu.princeton.cs.algs4.Edge;
 import edu.princeton.cs.algs4.EdgeWeightedGraph;
+import ghs.barrier.CombiningTreeBarrier;
+import ghs.barrier.CyclicRoundBarrier;
+import ghs.barrier.RoundBarrier;
+import ghs.barrier.WaitStrategy;
+import ghs.graph.CompactGraph;
+import ghs.graph.Partition;
+import ghs.transport.Transport;
 import ghs.message.Exit;
 import ghs.message.Message;
 import org.apache.log4j.Logger;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.LinkedBlockingDeque;
 
 /**
  * The {@code MasterThread} represents the daemon process that spawns and terminates workers, and prints info
  * about the minimum spanning tree before exiting.
+ *
+ * <p>The edges of the tree are collected up the tree, and the leader of every component sends the master one EXIT
+ * with the spanning tree of its component. The master blocks on its queue until these cover every worker. Besides
+ * logging it, and streaming it to an {@link MstSink} if one is set, the master completes
+ * {@link #getResult()} with the tree, so the simulation can be embedded, e.g. through
+ * {@link #computeMst(CompactGraph, ExecutionMode)}.</p>
  */
 public class MasterThread extends Thread {
     private static Logger log = Logger.getLogger("Master");
+    private static final int LOGGED_EDGES = 100;    // larger trees are only summed up in the log
 
     public BlockingQueue<Exit> queue = new LinkedBlockingDeque<>();
     private int numWorkers;
     private Process[] workers;
-    private CyclicBarrier barrier;
-    private Set<Integer> terminatedThreads = new HashSet<Integer>();
+    private RoundBarrier barrier;
+    private RoundCoordinator coordinator = new RoundCoordinator();
+    private ExecutionMode mode;
+    private int poolSize;
+    private Transport transport;        // only in SHARDED mode
+    private ShardThread shardThread;
+    private SimulationThread simulationThread;  // only in EVENT_DRIVEN mode
+    private Partition partition;        // only in POOLED and SHARDED modes
+    private int exitedWorkers;          // workers in the components whose leader has sent EXIT
 
     // MST info
-    private EdgeWeightedGraph graph;
-    private Set<Edge> mstEdges = new HashSet<>();
+    private CompactGraph graph;
+    private Set<Integer> mstEdges = new HashSet<>();
     private int leaderId;
-    private Edge coreEdge;
+    private int coreEdge = -1;
+    private CompletableFuture<MstResult> result = new CompletableFuture<>();
+    private MstSink sink;               // receives the edges of the tree as they arrive, if set
 
     /**
-     * Initializes a new MasterThread.
+     * Initializes a new MasterThread that runs every worker on its own thread.
      *
      * @param name  Name of the daemon
      * @param graph a graph with edge weights
      */
     public MasterThread(String name, EdgeWeightedGraph graph) {
+        this(name, graph, ExecutionMode.THREAD_PER_VERTEX);
+    }
+
+    /**
+     * Initializes a new MasterThread.
+     *
+     * @param name  Name of the daemon
+     * @param graph a graph with edge weights
+     * @param mode  how the workers are mapped onto threads
+     */
+    public MasterThread(String name, EdgeWeightedGraph graph, ExecutionMode mode) {
+        this(name, CompactGraph.of(graph), mode);
+    }
+
+    /**
+     * Initializes a new MasterThread.
+     *
+     * @param name  Name of the daemon
+     * @param graph a graph with edge weights
+     * @param mode  how the workers are mapped onto threads
+     */
+    public MasterThread(String name, CompactGraph graph, ExecutionMode mode) {
         super(name);
         this.graph = graph;
-        this.barrier = new CyclicBarrier(this.graph.V());
+        this.mode = mode;
+        if (mode == ExecutionMode.POOLED) {
+            this.poolSize = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), this.graph.V()));
+            this.barrier = newBarrier(this.poolSize, WaitStrategy.SPIN_YIELD);    // one worker per core
+        } else if (mode == ExecutionMode.EVENT_DRIVEN || mode == ExecutionMode.SHARDED) {
+            this.barrier = new CyclicRoundBarrier(1, null);    // the simulation runs on a single thread
+        } else {
+            this.barrier = newBarrier(this.graph.V(), WaitStrategy.PARK);
+        }
+    }
+
+    /**
+     * Creates the barrier the threads of the threaded modes meet at, twice per round.
+     *
+     * <p>System property {@code ghs.barrier} picks the kind of barrier, {@code tree} (a {@link CombiningTreeBarrier},
+     * the default) or {@code cyclic} (a {@code CyclicBarrier}), and {@code ghs.barrier.wait} how the parties of a tree
+     * wait, e.g. {@code SPIN}.</p>
+     *
+     * @param parties         number of threads
+     * @param defaultStrategy how the parties of a tree wait, unless set by the system property
+     * @return RoundBarrier instance
+     */
+    private RoundBarrier newBarrier(int parties, WaitStrategy defaultStrategy) {
+        if ("cyclic".equalsIgnoreCase(System.getProperty("ghs.barrier", "tree"))) {
+            log.info("Synchronizing " + parties + " threads on a CyclicBarrier.");
+            return new CyclicRoundBarrier(parties, this.coordinator);
+        }
+        String wait = System.getProperty("ghs.barrier.wait");
+        WaitStrategy strategy = wait == null ? defaultStrategy : WaitStrategy.valueOf(wait.toUpperCase());
+        log.info("Synchronizing " + parties + " threads on a combining tree barrier, strategy=" + strategy + ".");
+        return new CombiningTreeBarrier(parties, this.coordinator, strategy);
+    }
+
+    /**
+     * Initializes a new MasterThread for one shard of a network that is split over several JVMs.
+     *
+     * <p>The vertices are split into one part per shard, see {@link Partition#bfs(CompactGraph, int)}. Every shard must
+     * run a MasterThread over the same graph; the one of shard 0 reports the MST.</p>
+     *
+     * @param name      Name of the daemon
+     * @param graph     a graph with edge weights
+     * @param transport connection to the other shards
+     */
+    public MasterThread(String name, CompactGraph graph, Transport transport) {
+        this(name, graph, ExecutionMode.SHARDED);
+        if (graph.V() < transport.getShards()) {
+            throw new IllegalArgumentException("Can't split " + graph.V() + " vertices into " +
+                    transport.getShards() + " shards");
+        }
+        this.transport = transport;
+    }
+
+    /**
+     * Groups the vertices by graph structure, so that most messages stay within a worker thread or shard.
+     *
+     * @param parts number of groups
+     * @return group of every vertex
+     */
+    private Partition partition(int parts) {
+        long start = System.nanoTime();
+        Partition partition = Partition.bfs(this.graph, parts);
+        log.info("Partitioned into " + partition + " in " + (System.nanoTime() - start) / 1000000 + " ms" +
+                ", contiguous ids would cut " +
+                String.format("%.1f", 100 * Partition.contiguous(this.graph, parts).edgeCutRatio()) + "%");
+        return partition;
     }
 
     /**
      * Spawns workers and assigns neighbors as in the graph.
+     *
+     * <p>In SHARDED mode, only the workers of this shard are spawned.</p>
      */
     private void spawnWorkers() {
         int numProcesses = this.graph.V();
         Process[] processes = new Process[numProcesses];
+        if (this.mode == ExecutionMode.SHARDED) {
+            this.partition = partition(this.transport.getShards());
+        } else if (this.mode == ExecutionMode.POOLED) {
+            this.partition = partition(this.poolSize);
+        }
 
-        // spawn processes, the vertices in the graph are named 0 to V-1
-        for (int i = 0; i < numProcesses; i++) {
-            List<Edge> edges = new ArrayList<>();
-            for (Edge e : this.graph.adj(i)) {
-                edges.add(e);
+        // the engines that run many processes on few threads keep their states in one store per thread, indexed by
+        // the position of the process in its part, so that no two workers of the pool write to the same cache line
+        VertexStates[] stores = null;
+        int[] slots = null;     // next free entry, per store
+        if (this.mode == ExecutionMode.POOLED) {
+            stores = new VertexStates[this.poolSize];
+            for (int t = 0; t < this.poolSize; t++) {
+                stores[t] = new VertexStates(this.partition.size(t));
             }
-            processes[i] = new Process("thread-" + i, i, edges, this.barrier);
-            processes[i].setMaster(this);
+            slots = new int[this.poolSize];
+        } else if (this.mode == ExecutionMode.EVENT_DRIVEN) {
+            stores = new VertexStates[]{new VertexStates(numProcesses)};
+            slots = new int[1];
         }
 
-        // assign neighbor Processes
+        // with -Dghs.seed, every process draws the same delays in every run, which makes EVENT_DRIVEN runs repeatable
+        Long seed = Long.getLong("ghs.seed");
+
+        // spawn processes, the vertices in the graph are named 0 to V-1, their links are read from the shared graph
+        List<Process> local = new ArrayList<>();
         for (int i = 0; i < numProcesses; i++) {
-            List<Process> neighbors = new ArrayList<>();
-            for (Edge e : this.graph.adj(i)) {
-                int neighborId = e.other(i);    // vertex at the other end of the edge
-                neighbors.add(processes[neighborId]);
+            if (this.mode == ExecutionMode.SHARDED && this.partition.partOf(i) != this.transport.getShard()) {
+                continue;
+            }
+            if (stores != null) {
+                int part = this.mode == ExecutionMode.POOLED ? this.partition.partOf(i) : 0;
+                processes[i] = new Process("thread-" + i, i, this.graph, this.barrier, stores[part], slots[part]++);
+            } else {
+                processes[i] = new Process("thread-" + i, i, this.graph, this.barrier);
             }
-            processes[i].setNeighborProcesses(neighbors);
+            if (this.mode != ExecutionMode.SHARDED) {
+                processes[i].setMaster(this);   // the shards gather the tree themselves
+            }
+            if (seed != null) {
+                processes[i].random = new Random(seed * 31 + i);
+            }
+            processes[i].setCoordinator(this.coordinator);
+            processes[i].setNetwork(processes);
+            if (this.mode == ExecutionMode.EVENT_DRIVEN || this.mode == ExecutionMode.SHARDED) {
+                processes[i].setWorker(0);      // every process of this JVM runs on the same thread
+            }
+            local.add(processes[i]);
         }
 
+        this.workers = local.toArray(new Process[0]);
+        this.numWorkers = this.workers.length;
+
         // start all workers
-        for (int i = 0; i < processes.length; i++) {
-            processes[i].start();
+        if (this.mode == ExecutionMode.SHARDED) {
+            this.shardThread = new ShardThread("shard-" + this.transport.getShard(), local, processes, this.partition,
+                    this.transport, this.coordinator, this);
+            for (Process p : local) {
+                p.setOutbox(this.shardThread);
+            }
+            this.shardThread.start();
+        } else if (this.mode == ExecutionMode.POOLED) {
+            startPool();
+        } else if (this.mode == ExecutionMode.EVENT_DRIVEN) {
+            this.simulationThread = new SimulationThread("simulation", processes, this);
+            this.simulationThread.start();
+        } else if (this.mode == ExecutionMode.VIRTUAL_THREAD_PER_VERTEX) {
+            for (int i = 0; i < processes.length; i++) {
+                Thread.ofVirtual().name(processes[i].getName()).start(processes[i]);
+            }
+        } else {
+            for (int i = 0; i < processes.length; i++) {
+                new Thread(processes[i], processes[i].getName()).start();
+            }
         }
+    }
 
-        this.workers = processes;
-        this.numWorkers = numProcesses;
+    /**
+     * Groups the workers by their part in the partition and starts one {@code WorkerThread} per part, which hands the
+     * messages for other parts over in batches.
+     */
+    private void startPool() {
+        List<List<Process>> groups = new ArrayList<>(this.poolSize);
+        for (int t = 0; t < this.poolSize; t++) {
+            groups.add(new ArrayList<>(this.partition.size(t)));
+        }
+        for (Process p : this.workers) {
+            groups.get(this.partition.partOf(p.getUid())).add(p);
+        }
+        MessageBatch[][] batches = new MessageBatch[this.poolSize][this.poolSize];
+        for (int s = 0; s < this.poolSize; s++) {
+            for (int d = 0; d < this.poolSize; d++) {
+                batches[s][d] = new MessageBatch();
+            }
+        }
+        WorkerThread[] threads = new WorkerThread[this.poolSize];
+        for (int t = 0; t < this.poolSize; t++) {
+            threads[t] = new WorkerThread("worker-" + t, t, groups.get(t), this.workers, this.partition, batches,
+                    this.barrier, this.coordinator, this);
+            for (Process p : groups.get(t)) {
+                p.setWorker(t);
+                p.setOutbox(threads[t]);
+            }
+        }
+        for (WorkerThread thread : threads) {
+            thread.start();
+        }
+        log.info("Multiplexing " + this.numWorkers + " processes over " + this.poolSize + " worker threads.");
     }
 
     /**
@@ -88,7 +280,7 @@ public class MasterThread extends Thread {
      * @param m Message instance
      */
     private void pushToQueue(Process p, Message m) {
-        p.queue.add(m);
+        p.getInbox().offerControl(m);
     }
 
     /**
@@ -108,26 +300,140 @@ public class MasterThread extends Thread {
      * @return true if ready
      */
     private boolean receivedExitFromAllWorkers() {
-        return this.numWorkers <= this.terminatedThreads.size();
+        return this.numWorkers <= this.exitedWorkers;
+    }
+
+    /**
+     * Tells the master that an engine thread stopped before every component handed its tree over, so it stops waiting.
+     *
+     * @param cause why the engine stopped
+     */
+    void engineStopped(Throwable cause) {
+        this.queue.add(new Exit(cause));
     }
 
     /**
-     * Handles the {@code Exit} message received from worker and updates the MST info.
+     * Waits for the next {@code Exit} message from the leader of a component and updates the MST info.
      *
+     * @return false if an engine thread stopped without the tree instead, see {@link #engineStopped(Throwable)}
      * @throws InterruptedException
+     * @throws IOException if the sink can't be written
      */
-    private void handleMessage() throws InterruptedException {
-        if (!this.queue.isEmpty()) {
-            Exit exitMsg = this.queue.take();
+    private boolean handleMessage() throws InterruptedException, IOException {
+        Exit exitMsg = this.queue.take();
+        if (exitMsg.getFailure() != null) {
+            giveUp(exitMsg.getFailure());
+            return false;
+        }
 
-            if (exitMsg.isLeader()) {
-                this.leaderId = exitMsg.getSender();
-            }
-            this.coreEdge = exitMsg.getCoreEdge();
-            this.mstEdges.addAll(exitMsg.getBranchEdges());
-            // the only message master can receive is terminate, along with branch edges
-            this.terminatedThreads.add(exitMsg.getSender());
+        this.leaderId = exitMsg.getSender();
+        this.coreEdge = exitMsg.getCoreEdge();
+        for (int e : exitMsg.getTreeEdges()) {
+            addTreeEdge(e);
+        }
+        // the only message master can receive is terminate, along with the tree of the component
+        this.exitedWorkers += exitMsg.getComponentSize();
+        return true;
+    }
+
+    /**
+     * Ends a run in which an engine thread stopped without the tree: releases the threads still waiting for a round,
+     * if any, and completes the result exceptionally.
+     *
+     * @param cause why the engine stopped
+     * @throws IOException if the sink can't be closed
+     */
+    private void giveUp(Throwable cause) throws IOException {
+        log.error("Giving up, " + this.exitedWorkers + " of " + this.numWorkers + " workers have exited: " + cause);
+        this.barrier.reset();
+        if (this.sink != null) {
+            this.sink.close();
+        }
+        this.result.completeExceptionally(cause);
+    }
+
+    /**
+     * Gets the result of the run, completed once the trees of all components have reached the master.
+     *
+     * <p>In SHARDED mode, only shard 0 learns the tree; the result of the other shards completes with null.</p>
+     *
+     * @return the future result
+     */
+    public CompletableFuture<MstResult> getResult() {
+        return this.result;
+    }
+
+    /**
+     * Sets where the edges of the tree are streamed to, as the tree of each component arrives. Must be called before
+     * the master is started; the master closes the sink once the tree is complete.
+     *
+     * <p>In SHARDED mode, only shard 0 writes to its sink, once the shards have gathered the tree.</p>
+     *
+     * @param sink MstSink instance
+     */
+    public void setSink(MstSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Adds an edge to the tree and passes it on to the sink, unless it is already known.
+     *
+     * @param e edge id
+     * @throws IOException if the sink can't be written
+     */
+    private void addTreeEdge(int e) throws IOException {
+        if (this.mstEdges.add(e) && this.sink != null) {
+            int v = this.graph.either(e);
+            this.sink.edge(v, this.graph.opposite(e, v), this.graph.weight(e));
+        }
+    }
+
+    /**
+     * Computes the minimum spanning tree of a graph on a new {@code MasterThread}.
+     *
+     * @param graph a graph with edge weights
+     * @param mode  how the workers are mapped onto threads, any but SHARDED
+     * @return the future result, completed exceptionally if the engine stops without the tree
+     * @throws IllegalArgumentException if the mode is SHARDED, which needs a {@link Transport}
+     */
+    public static CompletableFuture<MstResult> computeMst(CompactGraph graph, ExecutionMode mode) {
+        if (mode == ExecutionMode.SHARDED) {
+            throw new IllegalArgumentException("SHARDED needs a transport, see MasterThread(String, CompactGraph, " +
+                    "Transport)");
+        }
+        MasterThread master = new MasterThread("MASTER", graph, mode);
+        master.start();
+        return master.getResult();
+    }
+
+    /**
+     * Prints the size and weight of the MST, and its edges if there are few of them.
+     *
+     * @param mst the tree
+     */
+    private void logMst(MstResult mst) {
+        log.info("Final MST " + (mst.size() <= LOGGED_EDGES ? "edges=" + mst.getEdges() + ", " : "") +
+                mst.size() + " edges, weight=" + String.format("%.5f", mst.getWeight()) +
+                ", leader=" + mst.getLeaderId() +
+                ", id (core edge)=" + mst.getCoreEdge());
+    }
+
+    /**
+     * Reports the tree: logs it, tells the sink the totals and completes the result.
+     *
+     * @param spawnNanos time it took to spawn the workers
+     * @param runNanos   time from the workers being spawned until the tree was complete
+     * @throws IOException if the sink can't be written
+     */
+    private void reportMst(long spawnNanos, long runNanos) throws IOException {
+        MstResult mst = new MstResult(this.graph, this.mstEdges, this.leaderId, this.coreEdge, spawnNanos, runNanos);
+        logMst(mst);
+        if (this.sink != null) {
+            this.sink.end(mst.size(), mst.getWeight());
+            this.sink.close();
+            log.info("Wrote MST to " + this.sink);
         }
+        this.result.complete(mst);
     }
 
     @Override
@@ -138,29 +444,74 @@ public class MasterThread extends Thread {
     @Override
     public void run() {
         try {
+            if (this.sink != null && (this.mode != ExecutionMode.SHARDED || this.transport.getShard() == 0)) {
+                this.sink.begin(this.graph);
+            }
+            long spawnStart = System.nanoTime();
             spawnWorkers();
-            log.info("Workers spawned.");
+            long runStart = System.nanoTime();
+            Runtime runtime = Runtime.getRuntime();
+            log.info("Workers spawned in " + (runStart - spawnStart) / 1000000 + " ms" +
+                    ", mode=" + this.mode +
+                    ", heap used=" + (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024) + " MB");
+
+            if (this.mode == ExecutionMode.SHARDED) {
+                // the shards agree on when to kill their workers, and shard 0 collects the MST
+                this.shardThread.join();
+                Exit failure = this.queue.poll();
+                if (failure != null) {
+                    giveUp(failure.getFailure());
+                    return;
+                }
+                long runNanos = System.nanoTime() - runStart;
+                log.info("Executed " + this.coordinator.getExecutedRounds() + " rounds up to round " +
+                        this.coordinator.getRound() + ", skipped " + this.coordinator.getSkippedHandlePhases() +
+                        " handle phases.");
+                if (this.transport.getShard() != 0) {
+                    log.info("Shard " + this.transport.getShard() + " done, MST reported by shard 0.");
+                    this.result.complete(null);
+                    return;
+                }
+                for (int e : this.shardThread.getMstEdges()) {
+                    addTreeEdge(e);
+                }
+                this.leaderId = this.shardThread.getLeaderId();
+                this.coreEdge = this.shardThread.getCoreEdge();
+                reportMst(runStart - spawnStart, runNanos);
+                return;
+            }
 
             while (!receivedExitFromAllWorkers()) {
-                // wait for workers to send you EXIT messages
-                handleMessage();
+                // wait for the leaders to send you EXIT messages
+                if (!handleMessage()) {
+                    return;
+                }
             }
+            long runNanos = System.nanoTime() - runStart;
             log.info("All threads have sent EXIT.");
 
             // terminate workers, i.e., broadcast EXIT to all workers (id doesn't matter)
             // workers exit when they receive this message
             Exit killMsg = new Exit(-1);
             broadcastMessage(killMsg);
+            this.coordinator.shutDown();
+            this.coordinator.messageDelivered();    // the threaded modes must run the handle half again
+            if (this.mode != ExecutionMode.EVENT_DRIVEN) {
+                log.info("Executed " + this.coordinator.getExecutedRounds() + " rounds up to round " +
+                        this.coordinator.getRound() + ", skipped " + this.coordinator.getSkippedHandlePhases() +
+                        " handle phases.");
+            }
 
-            // print edges in MST and weight of MST
-            log.info("Final MST edges=" + this.mstEdges +
-                    ", leader=" + this.leaderId +
-                    ", id (core edge)=" + this.coreEdge);
+            reportMst(runStart - spawnStart, runNanos);
 
             // wait for workers to receive KILL signal and shut down before exiting
             // otherwise, the barrier may interfere with some threads exiting
-        } catch (InterruptedException e) {
+        } catch (InterruptedException | IOException e) {
             e.printStackTrace();
+            this.result.completeExceptionally(e);
+        } catch (RuntimeException e) {
+            this.result.completeExceptionally(e);
+            throw e;
         }
     }
 }
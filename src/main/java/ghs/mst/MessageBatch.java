@@ -0,0 +1,84 @@
+package ghs.mst;
+
+import ghs.message.Message;
+import ghs.message.MessageSlot;
+import ghs.transport.Frame;
+
+/**
+ * The {@code MessageBatch} holds the messages one engine thread sends the processes of another in a round, so they
+ * change hands all at once rather than one by one.
+ *
+ * <p>A message takes four words of a {@link Frame}: the receiver and its port, then the packed head, body and edge of
+ * the message, see {@link MessageSlot}. The thread that runs the receivers unpacks the messages in the order they were
+ * added, straight into the inboxes of its processes, with plain stores since it owns them.</p>
+ */
+class MessageBatch {
+    static final int WORDS = 4;     // words per message
+
+    private Frame frame = new Frame();
+
+    /**
+     * Adds a message to the batch.
+     *
+     * @param receiver id of the receiving process
+     * @param port     the link, as numbered by the receiver
+     * @param m        Message instance
+     */
+    void add(int receiver, int port, Message m) {
+        append(this.frame, receiver, port, m);
+    }
+
+    /**
+     * Gets the number of messages in the batch.
+     *
+     * @return number of messages
+     */
+    int size() {
+        return this.frame.size() / WORDS;
+    }
+
+    /**
+     * Delivers every message of the batch and empties it. Must be called by the thread that runs the receivers.
+     *
+     * @param network   every process, by uid
+     * @param scheduler told about every receiver, which must handle its message in the current round
+     */
+    void deliver(Process[] network, Scheduler scheduler) {
+        deliver(this.frame, 0, size(), network, scheduler);
+        this.frame.clear();
+    }
+
+    /**
+     * Appends a message to a frame.
+     *
+     * @param frame    the frame
+     * @param receiver id of the receiving process
+     * @param port     the link, as numbered by the receiver
+     * @param m        Message instance
+     */
+    static void append(Frame frame, int receiver, int port, Message m) {
+        frame.add(((long) receiver << 32) | port);
+        frame.add(MessageSlot.packHead(m));
+        frame.add(MessageSlot.packBody(m));
+        frame.add(m.getEdge());
+    }
+
+    /**
+     * Delivers messages from a frame. Must be called by the thread that runs the receivers.
+     *
+     * @param frame     the frame
+     * @param from      position of the first word of the first message
+     * @param count     number of messages
+     * @param network   every process, by uid
+     * @param scheduler told about every receiver, which must handle its message in the current round
+     */
+    static void deliver(Frame frame, int from, int count, Process[] network, Scheduler scheduler) {
+        for (int i = from; i < from + WORDS * count; i += WORDS) {
+            long address = frame.get(i);
+            long head = frame.get(i + 1);
+            Process receiver = network[(int) (address >>> 32)];
+            receiver.getInbox().offerPlain((int) address, head, frame.get(i + 2), (int) frame.get(i + 3));
+            scheduler.wakeAt(receiver, (int) head);     // the round the message is due in
+        }
+    }
+}
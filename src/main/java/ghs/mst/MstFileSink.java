@@ -0,0 +1,116 @@
+package ghs.mst;
+
+import ghs.graph.CompactGraph;
+import ghs.graph.GraphFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The {@code MstFileSink} streams the edges of the tree to a file through a direct buffer, as text or in the binary
+ * format of {@link GraphFile}.
+ *
+ * <p>The binary header announces the number of edges, which is only known at the end, so it is written with a
+ * placeholder and patched by {@link #end(int, double)}. Text is encoded straight into the buffer; the characters of a
+ * line are ASCII, so nothing goes through a {@code CharsetEncoder}.</p>
+ */
+class MstFileSink implements MstSink {
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final int LINE_BYTES = 64;       // longest line: two ints and a double, with separators
+
+    private Path path;
+    private boolean binary;
+    private FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private StringBuilder line = new StringBuilder(LINE_BYTES);
+
+    /**
+     * Creates a file sink.
+     *
+     * @param path   the file, replaced if it exists
+     * @param binary true for the format of {@link GraphFile}, false for text
+     * @throws IOException if the file can't be created
+     */
+    MstFileSink(Path path, boolean binary) throws IOException {
+        this.path = path;
+        this.binary = binary;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    @Override
+    public void begin(CompactGraph graph) throws IOException {
+        if (this.binary) {
+            this.buffer.putInt(GraphFile.MAGIC).putInt(GraphFile.VERSION).putInt(graph.V()).putInt(0);
+        }
+    }
+
+    @Override
+    public void edge(int v, int w, double weight) throws IOException {
+        if (this.buffer.remaining() < LINE_BYTES) {
+            flush();
+        }
+        if (this.binary) {
+            this.buffer.putInt(v).putInt(w).putDouble(weight);
+        } else {
+            this.line.setLength(0);
+            this.line.append(v).append(' ').append(w).append(' ').append(weight).append('\n');
+            putAscii(this.line);
+        }
+    }
+
+    @Override
+    public void end(int edges, double weight) throws IOException {
+        if (this.binary) {
+            flush();
+            ByteBuffer count = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, edges);
+            while (count.hasRemaining()) {
+                this.channel.write(count, 12 + count.position());
+            }
+        } else {
+            this.line.setLength(0);
+            this.line.append("# ").append(edges).append(" edges, weight ").append(weight).append('\n');
+            if (this.buffer.remaining() < this.line.length()) {
+                flush();
+            }
+            putAscii(this.line);
+        }
+    }
+
+    /**
+     * Copies ASCII characters into the buffer, which must have room for them.
+     *
+     * @param chars the characters
+     */
+    private void putAscii(CharSequence chars) {
+        for (int i = 0; i < chars.length(); i++) {
+            this.buffer.put((byte) chars.charAt(i));
+        }
+    }
+
+    private void flush() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return (this.binary ? "binary" : "text") + " file " + this.path;
+    }
+}
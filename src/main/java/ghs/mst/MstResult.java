@@ -0,0 +1,107 @@
+package ghs.mst;
+
+import edu.princeton.cs.algs4.Edge;
+import ghs.graph.CompactGraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The {@code MstResult} is the minimum spanning tree (or forest) a {@link MasterThread} computed, along with how long
+ * it took.
+ */
+public class MstResult {
+    private CompactGraph graph;
+    private int[] edgeIds;          // sorted
+    private double weight;
+    private int leaderId;
+    private int coreEdge;           // -1 if none
+    private long spawnNanos;
+    private long runNanos;
+
+    /**
+     * Instantiates a new {@code MstResult}.
+     *
+     * @param graph      the graph the tree spans
+     * @param edgeIds    ids of the edges of the tree
+     * @param leaderId   id of the leader of the last component
+     * @param coreEdge   core edge of the last component, -1 if none
+     * @param spawnNanos time it took to spawn the processes
+     * @param runNanos   time from the processes being spawned until all of them sent EXIT
+     */
+    MstResult(CompactGraph graph, Set<Integer> edgeIds, int leaderId, int coreEdge, long spawnNanos, long runNanos) {
+        this.graph = graph;
+        this.edgeIds = new int[edgeIds.size()];
+        int i = 0;
+        for (int e : edgeIds) {
+            this.edgeIds[i++] = e;
+            this.weight += graph.weight(e);
+        }
+        Arrays.sort(this.edgeIds);
+        this.leaderId = leaderId;
+        this.coreEdge = coreEdge;
+        this.spawnNanos = spawnNanos;
+        this.runNanos = runNanos;
+    }
+
+    /**
+     * Gets the ids of the edges of the tree, in increasing order.
+     *
+     * @return edge ids, see {@link CompactGraph}
+     */
+    public int[] getEdgeIds() {
+        return this.edgeIds.clone();
+    }
+
+    /**
+     * Gets the edges of the tree.
+     *
+     * @return edges, in increasing order of id
+     */
+    public List<Edge> getEdges() {
+        List<Edge> edges = new ArrayList<>(this.edgeIds.length);
+        for (int e : this.edgeIds) {
+            edges.add(this.graph.toEdge(e));
+        }
+        return Collections.unmodifiableList(edges);
+    }
+
+    public int size() {
+        return this.edgeIds.length;
+    }
+
+    public double getWeight() {
+        return this.weight;
+    }
+
+    public int getLeaderId() {
+        return this.leaderId;
+    }
+
+    /**
+     * Gets the core edge of the last component, which identifies it.
+     *
+     * @return the core edge, null if none
+     */
+    public Edge getCoreEdge() {
+        return this.coreEdge == -1 ? null : this.graph.toEdge(this.coreEdge);
+    }
+
+    public long getSpawnMillis() {
+        return this.spawnNanos / 1000000;
+    }
+
+    public long getRunMillis() {
+        return this.runNanos / 1000000;
+    }
+
+    @Override
+    public String toString() {
+        return "MstResult{edges=" + this.edgeIds.length + ", weight=" + String.format("%.5f", this.weight) +
+                ", leader=" + this.leaderId + ", core edge=" + getCoreEdge() + ", spawn=" + getSpawnMillis() +
+                " ms, run=" + getRunMillis() + " ms}";
+    }
+}
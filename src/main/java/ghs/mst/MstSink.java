@@ -0,0 +1,86 @@
+package ghs.mst;
+
+import ghs.graph.CompactGraph;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The {@code MstSink} receives the edges of the minimum spanning tree one at a time, as the master learns them, so a
+ * large tree can be written out without ever being held in a single string.
+ *
+ * <p>The master calls {@link #begin(CompactGraph)} once, {@link #edge(int, int, double)} once per tree edge, e.g. as the
+ * tree of each component arrives, {@link #end(int, double)} with the totals and finally {@link #close()}. Only
+ * {@code edge} must be implemented, so a callback can be a lambda.</p>
+ */
+@FunctionalInterface
+public interface MstSink extends AutoCloseable {
+
+    /**
+     * Called before the first edge.
+     *
+     * @param graph the graph the tree spans
+     * @throws IOException if the sink can't be written
+     */
+    default void begin(CompactGraph graph) throws IOException {
+    }
+
+    /**
+     * Called for every edge of the tree, once.
+     *
+     * @param v      one endpoint
+     * @param w      the other endpoint
+     * @param weight weight of the edge
+     * @throws IOException if the sink can't be written
+     */
+    void edge(int v, int w, double weight) throws IOException;
+
+    /**
+     * Called after the last edge.
+     *
+     * @param edges  number of edges in the tree
+     * @param weight total weight of the tree
+     * @throws IOException if the sink can't be written
+     */
+    default void end(int edges, double weight) throws IOException {
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+
+    /**
+     * Creates a sink that writes the tree as text, one {@code v w weight} line per edge followed by a {@code #} line
+     * with the totals.
+     *
+     * @param path the file, replaced if it exists
+     * @return MstSink instance
+     * @throws IOException if the file can't be created
+     */
+    static MstSink text(Path path) throws IOException {
+        return new MstFileSink(path, false);
+    }
+
+    /**
+     * Creates a sink that writes the tree in the binary format of {@link ghs.graph.GraphFile}, so it can be loaded
+     * back as a graph.
+     *
+     * @param path the file, replaced if it exists
+     * @return MstSink instance
+     * @throws IOException if the file can't be created
+     */
+    static MstSink binary(Path path) throws IOException {
+        return new MstFileSink(path, true);
+    }
+
+    /**
+     * Creates a file sink, in binary format if the file name ends with {@code .bin} and as text otherwise.
+     *
+     * @param path the file, replaced if it exists
+     * @return MstSink instance
+     * @throws IOException if the file can't be created
+     */
+    static MstSink file(Path path) throws IOException {
+        return path.toString().endsWith(".bin") ? binary(path) : text(path);
+    }
+}
@@ -0,0 +1,18 @@
+package ghs.mst;
+
+import ghs.message.Message;
+
+/**
+ * Takes the messages a {@code Process} sends to neighbors that run on another thread or in another shard, to hand them
+ * over in batches.
+ */
+interface Outbox {
+    /**
+     * Sends a message to a process of another thread or shard.
+     *
+     * @param receiver id of the receiving process
+     * @param port     the link, as numbered by the receiver
+     * @param m        Message instance
+     */
+    void send(int receiver, int port, Message m);
+}
@@ -1,6 +1,8 @@
 package ghs.mst;
 
-import edu.princeton.cs.algs4.Edge;
+import ghs.barrier.RoundBarrier;
+import ghs.graph.CompactGraph;
+import ghs.graph.PortIndex;
 import ghs.message.*;
 import org.apache.log4j.Logger;
 
@@ -11,104 +13,167 @@ import java.util.concurrent.*;
  * The {@code Process} represents a process in a asynchronous network that executes instructions for finding
  * the minimum spanning tree in the graph using the Asynchronous GHS algorithm.
  */
-public class Process extends Thread {
-    private Logger log = Logger.getLogger(this.getName());
+public class Process implements Runnable {
+    private String name;
+    private Logger log;
     public Random random = new Random();
-    public BlockingQueue<Message> queue = new PriorityBlockingQueue<>(30);
+    private Inbox inbox;
+    private MessageSlot received = new MessageSlot();   // message being handled
+    private MessageSlot deferred = new MessageSlot();   // deferred Test being answered
+    private MessageSlot pending = new MessageSlot();    // pending Connect being retried
 
     // states
     private int uid;                    // my unique id
-    public int leaderId;                // leader of my component
-    private int parentId;               // my parent in the current component
-    private Set<Integer> children;      // ids of my children in the current component
-    private int level;                  // level of the component
-    private int mwoeSender;             // id of the process that sent me the mwoe
-    private Edge coreEdge;              // core edge, represents the id of the component
-    private Edge mwoe;                  // the mwoe I have seen so far
+    private VertexStates states;        // my level, parent, leader, mwoe and its sender, core edge and flags
+    private int slot;                   // my entry in the states
+    private ChildSet children;          // links to my children in the current component, and their reports
 
     // for exiting and synchronization
     private int round;
-    private CyclicBarrier barrier;
+    private RoundBarrier barrier;
     private MasterThread master;
-    private boolean readyToExit;
-    private boolean selfKill;
-    private boolean exitSent;
+    private Scheduler scheduler;        // only set when the engine activates processes on demand
+    private RoundCoordinator coordinator;   // only set when the engine synchronizes on a barrier
+
+    // for collecting the final spanning tree
+    private boolean collecting;         // received Finish, or my component is done and I am its leader
+    private EdgeList treeEdges;         // only the leader: edges of the tree streamed up to me
+    private int resultParent = -1;      // who I stream my subtree edges to, -1 if I am the leader
+    private int awaitedResults;         // children whose subtree is not complete yet
 
     // for processing  messages
+    private MessagePool pool = new MessagePool();   // shared with the processes on my thread, if the engine says so
     private PriorityQueue<Message> sendBuffer;
-    private PriorityQueue<Message> deferQueue;
-    private PriorityQueue<Connect> pendingConnects;
+    private LevelQueue<Test> deferQueue;            // Tests of a higher level than mine, by level
+    private LevelQueue<Connect> pendingConnects;    // Connects I can neither merge nor absorb yet, by level
 
     // book-keeping
-    private boolean connectSent;
-    private boolean acceptReceivedInPhase;
-    private boolean noBasicEdgesLeft;
-    private List<Edge> edges;
-    private PriorityQueue<Edge> basicEdges;
-    private Set<Edge> branchEdges;
-    private Set<Edge> rejectedEdges;
-    private Set<Integer> receivedReportsFrom;
+    private CompactGraph graph;         // my links are the row of my uid
+    private EdgeStates edgeStates;      // basic, branch or rejected, per link
 
     // maps for handling asynchronous communication with neighbors
-    private Map<Integer, Process> vertexToProcess = new HashMap<>();
-    private Map<Integer, Integer> vertexToRound = new HashMap<>();
+    private Process[] network;          // every process, by uid
+    private PortIndex portIndex;        // neighbor to port, only for vertices of high degree
+    private Outbox outbox;              // for neighbors on other threads, and in other shards, which are null in the network
+    private int[] lastRounds;           // per link, the round of the last message I scheduled over it
+    private int worker = -1;            // thread that runs me along with other processes, -1 if none
+    private long localDeliveries;       // messages delivered to neighbors on my thread
+    private long remoteDeliveries;      // messages delivered to neighbors on other threads or shards
+
+    /**
+     * Instantiates a new {@code Process} that keeps its states to itself.
+     *
+     * @param name    name of the Process
+     * @param uid     unique id
+     * @param graph   the network, my links are the edges of vertex {@code uid}
+     * @param barrier RoundBarrier every other Process in the network shares, I am party {@code uid}
+     */
+    public Process(String name, int uid, CompactGraph graph, RoundBarrier barrier) {
+        this(name, uid, graph, barrier, new VertexStates(1), 0);
+    }
 
     /**
-     * Instantiates a new {@code Process}.
+     * Instantiates a new {@code Process} whose states are an entry of a store shared with other processes.
      *
      * @param name    name of the Process
      * @param uid     unique id
-     * @param edges   links of the Process
-     * @param barrier CyclicBarrier every other Process in the network shares
+     * @param graph   the network, my links are the edges of vertex {@code uid}
+     * @param barrier RoundBarrier every other Process in the network shares, I am party {@code uid}
+     * @param states  the store
+     * @param slot    my entry in the store
      */
-    public Process(String name, int uid, List<Edge> edges, CyclicBarrier barrier) {
-        super(name);
+    Process(String name, int uid, CompactGraph graph, RoundBarrier barrier, VertexStates states, int slot) {
+        this.name = name;
+        this.log = Logger.getLogger(name);
 
-        // states
+        // states, the flags are all cleared
         this.uid = uid;
-        this.parentId = -1;
-        this.children = new HashSet<>();
-        this.mwoeSender = uid;
-        this.leaderId = uid;
-        this.mwoe = null;
-        this.edges = edges;
+        this.states = states;
+        this.slot = slot;
+        states.reset(slot, uid);
+        this.graph = graph;
 
         // synchronization
         this.barrier = barrier;
         this.round = 0;
-        this.readyToExit = false;
-        this.selfKill = false;
-        this.exitSent = false;
 
         // processing messages
         this.sendBuffer = new PriorityQueue<>(20);
-        this.deferQueue = new PriorityQueue<>(10);
-        this.pendingConnects = new PriorityQueue<>(10);
+        this.deferQueue = new LevelQueue<>();
+        this.pendingConnects = new LevelQueue<>();
 
         // book-keeping
-        this.connectSent = false;
-        this.acceptReceivedInPhase = false;
-        this.noBasicEdgesLeft = false;
-        this.basicEdges = new PriorityQueue<>();
-        this.basicEdges.addAll(edges);      // initially, all edges are basic edges
-        this.branchEdges = new HashSet<>();
-        this.rejectedEdges = new HashSet<>();
-        this.receivedReportsFrom = new HashSet<>();
+        this.edgeStates = new EdgeStates(graph, uid);   // initially, all edges are basic edges
+        this.children = new ChildSet(graph.degree(uid));
 
         // maps for handling asynchronous communication with neighbors
-        this.vertexToProcess = new HashMap<>();
-        this.vertexToRound = new HashMap<>();
+        this.inbox = new Inbox(uid, graph.degree(uid));
+        this.lastRounds = new int[graph.degree(uid)];
+        if (PortIndex.worthIndexing(graph.degree(uid))) {
+            this.portIndex = new PortIndex(graph, uid);
+        }
+    }
+
+    /**
+     * Sets the processes of the network. My neighbors are found through the graph.
+     *
+     * @param network every process, indexed by uid
+     */
+    public void setNetwork(Process[] network) {
+        this.network = network;
+    }
+
+    /**
+     * Sets where messages to neighbors on other threads go, when the engine batches them, and to neighbors missing
+     * from the network, when it is split into shards.
+     *
+     * @param outbox Outbox instance
+     */
+    void setOutbox(Outbox outbox) {
+        this.outbox = outbox;
+    }
+
+    /**
+     * Sets the thread that runs me. Messages to neighbors with the same worker skip all synchronization.
+     *
+     * @param worker index of the thread, the same for all processes it runs
+     */
+    void setWorker(int worker) {
+        this.worker = worker;
+    }
+
+    long getLocalDeliveries() {
+        return this.localDeliveries;
+    }
+
+    long getRemoteDeliveries() {
+        return this.remoteDeliveries;
     }
 
     /**
-     * Sets neighbor processes.
+     * Sums up the delivery counters of the processes an engine thread runs, for it to report when it shuts down.
      *
-     * @param neighborProcesses list of neighboring processes
+     * @param processes the processes
+     * @return local and remote deliveries
      */
-    public void setNeighborProcesses(List<Process> neighborProcesses) {
-        for (Process p : neighborProcesses) {
-            this.vertexToProcess.put(p.getUid(), p);
+    static String describeDeliveries(Iterable<Process> processes) {
+        long local = 0;
+        long remote = 0;
+        for (Process p : processes) {
+            local += p.localDeliveries;
+            remote += p.remoteDeliveries;
         }
+        return "Delivered " + local + " messages on this thread and " + remote + " to other threads or shards.";
+    }
+
+    /**
+     * Sets the pool I take the messages I send from, instead of a pool of my own. Must be confined to the thread that
+     * runs me.
+     *
+     * @param pool MessagePool instance
+     */
+    void setPool(MessagePool pool) {
+        this.pool = pool;
     }
 
     /**
@@ -120,6 +185,53 @@ public class Process extends Thread {
         this.master = master;
     }
 
+    /**
+     * Sets the scheduler that must be told about the rounds in which I have work to do.
+     *
+     * @param scheduler Scheduler instance
+     */
+    void setScheduler(Scheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Sets the coordinator of the barrier I synchronize on.
+     *
+     * @param coordinator RoundCoordinator instance
+     */
+    void setCoordinator(RoundCoordinator coordinator) {
+        this.coordinator = coordinator;
+    }
+
+    /**
+     * Moves my clock to a round.
+     *
+     * <p>Used by engines that skip the rounds in which I have nothing to do.</p>
+     *
+     * @param round the current round
+     */
+    void setRound(int round) {
+        this.round = round;
+    }
+
+    /**
+     * Gets the inbox other processes and the master deliver messages to.
+     *
+     * @return Inbox instance
+     */
+    Inbox getInbox() {
+        return this.inbox;
+    }
+
+    /**
+     * Gets the name of the {@code Process}.
+     *
+     * @return name
+     */
+    public String getName() {
+        return this.name;
+    }
+
     /**
      * Gets the unique id of the {@code Process}
      *
@@ -130,18 +242,74 @@ public class Process extends Thread {
     }
 
     /**
-     * Returns the {@code Edge} that connects to a certain neighbor.
+     * Gets the leader of my component.
+     *
+     * @return id of the leader
+     */
+    public int getLeaderId() {
+        return this.states.leader[this.slot];
+    }
+
+    /**
+     * Gets the store my states are an entry of.
+     *
+     * @return VertexStates instance
+     */
+    VertexStates getStates() {
+        return this.states;
+    }
+
+    private boolean is(int flag) {
+        return this.states.is(this.slot, flag);
+    }
+
+    private void setFlag(int flag, boolean on) {
+        this.states.set(this.slot, flag, on);
+    }
+
+    /**
+     * Returns my link to a certain neighbor.
      *
      * @param neighborId neighbor id
-     * @return {@code Edge}, outlink to that neighbor
+     * @return port, -1 if the neighbor is not adjacent
      */
-    private Edge getEdge(int neighborId) {
-        for (Edge e : this.edges) {
-            if (e.other(this.uid) == neighborId) {
-                return e;
-            }
+    private int getPort(int neighborId) {
+        return this.portIndex != null ? this.portIndex.get(neighborId) : this.graph.port(this.uid, neighborId);
+    }
+
+    /**
+     * Returns the edge that connects to a certain neighbor.
+     *
+     * @param neighborId neighbor id
+     * @return edge id, outlink to that neighbor, -1 if there is none
+     */
+    private int getEdge(int neighborId) {
+        int port = getPort(neighborId);
+        return port < 0 ? -1 : this.graph.edge(this.uid, port);
+    }
+
+    /**
+     * Returns the link a message arrived on.
+     *
+     * @param msg message received from a neighbor
+     * @return port
+     */
+    private int getPort(MessageSlot msg) {
+        return msg.getPort() >= 0 ? msg.getPort() : getPort(msg.getSender());
+    }
+
+    /**
+     * Returns my link over an edge.
+     *
+     * @param edge id of an edge I am adjacent to
+     * @return port
+     */
+    private int getPortOfEdge(int edge) {
+        int port = getPort(this.graph.opposite(edge, this.uid));
+        while (this.graph.edge(this.uid, port) != edge) {
+            port++;     // parallel edges lead to the same neighbor over consecutive ports
         }
-        return null;
+        return port;
     }
 
     /**
@@ -164,6 +332,9 @@ public class Process extends Thread {
      */
     private void addToSendBuffer(Message m) {
         this.sendBuffer.add(m);
+        if (this.scheduler != null) {
+            this.scheduler.wakeAt(this, m.getRound());
+        }
     }
 
     /**
@@ -172,28 +343,43 @@ public class Process extends Thread {
      * <p>Ensures messages are added to the send buffer in the order in which they are generated. In short, if I
      * send <em>m</em> to you followed by <em>n</em>, you should process <em>m</em> first.</p>
      *
-     * @param neighborId id of neighbor
+     * @param port my link to the neighbor
      * @return round in which the message must be sent
      */
-    private int getNextRound(int neighborId) {
-        int prevRound = this.vertexToRound.getOrDefault(neighborId, 0);
+    private int getNextRound(int port) {
+        int prevRound = this.lastRounds[port];
         int currentDelay = getDelay();
         int nextRound = this.round + currentDelay;
         if (nextRound <= prevRound) {
             nextRound = prevRound + 1;
         }
-        this.vertexToRound.put(neighborId, nextRound);
+        this.lastRounds[port] = nextRound;
         return nextRound;
     }
 
     /**
-     * Adds a message to another process's queue.
+     * Adds a message to the queue of the neighbor at the other end of a link.
      *
-     * @param p Process object
-     * @param m Message object
+     * @param port my link to the neighbor
+     * @param m    Message object
      */
-    private void pushToQueue(Process p, Message m) {
-        p.queue.add(m);
+    private void pushToQueue(int port, Message m) {
+        int neighborId = this.graph.neighbor(this.uid, port);
+        Process p = this.network[neighborId];
+        if (p != null && this.worker >= 0 && p.worker == this.worker) {
+            p.inbox.offerPlain(this.graph.reversePort(this.uid, port), m);
+            this.localDeliveries++;
+        } else if (this.outbox != null) {   // batched per thread or shard, delivered by the receiver's thread
+            this.outbox.send(neighborId, this.graph.reversePort(this.uid, port), m);
+            this.remoteDeliveries++;
+            return;
+        } else {
+            p.inbox.offer(this.graph.reversePort(this.uid, port), m);
+            this.remoteDeliveries++;
+        }
+        if (this.scheduler != null) {
+            this.scheduler.wakeAt(p, m.getRound());
+        }
     }
 
     /**
@@ -207,13 +393,13 @@ public class Process extends Thread {
     }
 
     /**
-     * Sends a message to master notifying of termination of the current worker process.
+     * Sends the spanning tree of my component to the master. Only the leader does, once the edges of the whole tree
+     * have reached it.
      */
     private void sendTerminationToMaster() {
-        boolean isLeader = this.uid == this.leaderId;
-        Exit exitMsg = new Exit(this.uid, this.coreEdge, this.branchEdges, isLeader);
+        Exit exitMsg = new Exit(this.uid, this.states.coreEdge[this.slot], this.treeEdges.toArray());
         pushToQueue(this.master, exitMsg);
-        log.info("Sent EXIT to " + master.getName());
+        log.info("Sent EXIT with " + this.treeEdges.size() + " tree edges to " + master.getName());
     }
 
     /**
@@ -229,7 +415,7 @@ public class Process extends Thread {
         int delay = this.round;
         // only generate a delay for a neighbor, not for myself
         if (neighborId != this.uid) {
-            delay = getNextRound(neighborId);
+            delay = getNextRound(getPort(neighborId));
         } else {
             delay = this.round + 1;
         }
@@ -241,13 +427,13 @@ public class Process extends Thread {
     }
 
     /**
-     * Sends a message along an {@code Edge}.
+     * Sends a message along an edge.
      *
      * @param msg  Message
-     * @param edge Edge
+     * @param edge edge id
      */
-    private void sendMessage(Message msg, Edge edge) {
-        int neighborId = edge.other(this.uid);
+    private void sendOverEdge(Message msg, int edge) {
+        int neighborId = this.graph.opposite(edge, this.uid);
         sendMessage(msg, neighborId);
     }
 
@@ -259,86 +445,107 @@ public class Process extends Thread {
      * the message is instantaneous.</p>
      */
     private void processSendBuffer() {
-        while (!this.sendBuffer.isEmpty() && this.sendBuffer.peek().getRound() == this.round) {
+        while (!this.sendBuffer.isEmpty() && this.sendBuffer.peek().getRound() <= this.round) {
             Message m = this.sendBuffer.remove();
+            if (this.coordinator != null) {
+                this.coordinator.messageDelivered();
+            }
             if (m.getReceiver() == this.uid) {  // because we allow a process to send message to itself
-                this.queue.add(m);
+                this.inbox.offerLocal(m);
             } else {
-                pushToQueue(this.vertexToProcess.get(m.getReceiver()), m);
+                pushToQueue(getPort(m.getReceiver()), m);
+                this.pool.release(m);   // packed into the inbox, or a batch, of the neighbor
             }
         }
     }
 
     /**
-     * Processes deferred replies to {@code Test} messages.
+     * Processes deferred replies to {@code Test} messages, those of my level or lower.
      */
     private void processDeferQueue() {
-        while (!this.deferQueue.isEmpty() && this.level >= ((Test) this.deferQueue.peek()).getLevel()) {
-            Test testMsg = ((Test) this.deferQueue.remove());
+        Test testMsg;
+        while ((testMsg = this.deferQueue.pollAtMost(this.states.level[this.slot])) != null) {
             log.debug("Deferred reply to " + testMsg);
-            sendTestReply(testMsg);
+            this.deferred.set(testMsg);
+            sendTestReply(this.deferred);
         }
     }
 
     /**
-     * Process pending {@code Connect} messages.
+     * Process pending {@code Connect} messages: absorbs those of a lower level than mine, then merges with the one
+     * sent over my mwoe, if I have sent mine over it too. A merge raises my level, which may unblock more.
      */
     private void processPendingConnects() {
-        // process pending connects until you can no longer process them
         while (true) {
-            Connect connect = this.pendingConnects.poll();
-            if (connect == null) {
+            Connect connect = this.pendingConnects.pollAtMost(this.states.level[this.slot] - 1);
+            if (connect == null && !mergePendingConnect()) {
                 break;
             }
-            log.debug("Trying to process pending " + connect);
-            mergeOrAbsorb(connect);
-            // if processed, pending connects won't have this connect again
-            if (connect.equals(this.pendingConnects.peek())) {
-                // couldn't process the connect message yet
-                break;
+            if (connect != null) {
+                log.debug("Processing pending " + connect);
+                this.pending.set(connect);
+                mergeOrAbsorb(this.pending);
             }
         }
     }
 
+    /**
+     * Merges with the component at the other end of my mwoe, if its {@code Connect} arrived before I sent mine.
+     *
+     * @return true if merged
+     */
+    private boolean mergePendingConnect() {
+        if (!is(VertexStates.CONNECT_SENT)) {
+            return false;
+        }
+        Connect connect = this.pendingConnects.remove(this.states.level[this.slot], this.states.mwoe[this.slot]);
+        if (connect == null) {
+            return false;
+        }
+        log.debug("Processing pending " + connect);
+        this.pending.set(connect);
+        mergeOrAbsorb(this.pending);
+        return true;
+    }
+
     /**
      * Sends a Wake Up message to self.
      *
      * <p>Wake up messages instruct the process to begin the next phase of searching for MWOEs.</p>
      */
-    private void wakeUp() {
-        Initiate msg = new Initiate(this.uid, this.uid, this.level, null, this.uid);
+    void wakeUp() {
+        Initiate msg = new Initiate(this.uid, this.uid, this.states.level[this.slot], -1, this.uid);
         msg.setRound(this.round);   // don't delay when sending message to self
-        this.queue.add(msg);
+        this.inbox.offerLocal(msg);
     }
 
     /**
-     * Broadcast an {@code Initiate} message along an {@code Edge}.
+     * Broadcast an {@code Initiate} message along an edge.
      *
      * @param edge edge along which initiate message will be broadcasted
      */
-    private void broadcast(Edge edge) {
-        Initiate initiateMsg = new Initiate(this.uid, -1, this.level, this.coreEdge, this.leaderId);
-        int neighborId = edge.other(this.uid);
-        if (neighborId != this.parentId) {
-            sendMessage(initiateMsg, edge);
+    private void broadcast(int edge) {
+        int neighborId = this.graph.opposite(edge, this.uid);
+        if (neighborId != this.states.parent[this.slot]) {
+            Initiate initiateMsg = this.pool.initiate(this.states.level[this.slot], this.states.coreEdge[this.slot],
+                    this.states.leader[this.slot]);
+            sendOverEdge(initiateMsg, edge);
         }
         // children
-        if (neighborId != this.parentId) {
-            this.children.add(neighborId);
+        if (neighborId != this.states.parent[this.slot]) {
+            this.children.add(getPort(neighborId));
         }
     }
 
     /**
-     * Broadcasts {@code Initiate} messages along the edges specified.
+     * Broadcasts {@code Initiate} messages along my branch edges.
      *
      * <p>The process who broadcasts the {@code Initiate} message must know who its children are. However, its children
      * might be informed of their new parent, i.e. this process.</p>
-     *
-     * @param edges edges along which initiate message will be broadcasted
      */
-    private void broadcast(Set<Edge> edges) {
-        for (Edge e : edges) {
-            broadcast(e);
+    private void broadcastOverBranches() {
+        for (int i = 0; i < this.edgeStates.branchCount(); i++) {
+            broadcast(this.graph.edge(this.uid, this.edgeStates.branchPort(i)));
         }
     }
 
@@ -347,18 +554,19 @@ public class Process extends Thread {
      */
     private void testBasicEdge() {
         processPendingConnects();
-        Edge minWeightBasicEdge = this.basicEdges.poll();
-        Test testMsg = new Test(this.uid, -1, this.coreEdge, this.level);
-        if (minWeightBasicEdge != null) {
+        int port = this.edgeStates.pollBasic();
+        if (port >= 0) {
+            Test testMsg = this.pool.test(this.states.coreEdge[this.slot], this.states.level[this.slot]);
+            int minWeightBasicEdge = this.graph.edge(this.uid, port);
             log.debug("Testing " + minWeightBasicEdge);
-            sendMessage(testMsg, minWeightBasicEdge);
+            sendOverEdge(testMsg, minWeightBasicEdge);
         } else {
-            this.noBasicEdgesLeft = true;
+            setFlag(VertexStates.NO_BASIC_EDGES_LEFT, true);
             if (foundLocalMwoe()) {
                 ackReport();
             }
             log.debug("No basic edges left to test" +
-                    ", acceptReceivedInPhase=" + acceptReceivedInPhase);
+                    ", acceptReceivedInPhase=" + is(VertexStates.ACCEPT_RECEIVED));
         }
     }
 
@@ -368,10 +576,20 @@ public class Process extends Thread {
      * @return true if received from all children (also if no children), false otherwise
      */
     private boolean receivedReportsFromChildren() {
-        if (this.children.isEmpty() && this.receivedReportsFrom.isEmpty()) {
-            return true;
+        return this.children.allReported();
+    }
+
+    /**
+     * Lists the ids of my children, for logging.
+     *
+     * @return ids of my children
+     */
+    private String describeChildren() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int port = this.children.next(0); port >= 0; port = this.children.next(port + 1)) {
+            sb.append(sb.length() > 1 ? ", " : "").append(this.graph.neighbor(this.uid, port));
         }
-        return this.children.equals(this.receivedReportsFrom);
+        return sb.append(']').toString();
     }
 
     /**
@@ -381,7 +599,7 @@ public class Process extends Thread {
      */
     private boolean foundLocalMwoe() {
         if (receivedReportsFromChildren() &&
-                (this.acceptReceivedInPhase || this.noBasicEdgesLeft)) {
+                (is(VertexStates.ACCEPT_RECEIVED) || is(VertexStates.NO_BASIC_EDGES_LEFT))) {
             return true;
         } else {
             return false;
@@ -393,27 +611,33 @@ public class Process extends Thread {
      *
      * @param reportMsg Report message
      */
-    private void updateMWOE(Report reportMsg) {
-        if (children.contains(reportMsg.getSender())) {
-            this.receivedReportsFrom.add(reportMsg.getSender());
+    private void updateMWOE(MessageSlot reportMsg) {
+        int port = getPort(reportMsg.getSender());
+        if (this.children.contains(port)) {
+            this.children.report(port);
         } else {
             // ignore report
             log.error("Received REPORT from non-child: " + reportMsg.getSender());
         }
-        if (reportMsg.getMwoe() == null) {
+        if (reportMsg.getEdge() == -1) {
             // no need to change own mwoe
-            log.debug("Received no mwoe in report. My mwoe=" + this.mwoe);
-        } else if (this.mwoe == null) {
+            log.debug("Received no mwoe in report. My mwoe=" + this.states.mwoe[this.slot]);
+        } else if (this.states.mwoe[this.slot] == -1) {
             // found better mwoe from reports, i.e. children
-            this.mwoe = reportMsg.getMwoe();
-            this.mwoeSender = reportMsg.getSender();    // only need to store who sent me the MWOE and trace
-            log.debug("Found better mwoe from " + reportMsg);
+            this.states.mwoe[this.slot] = reportMsg.getEdge();
+            // only need to store who sent me the MWOE and trace
+            this.states.mwoeSender[this.slot] = reportMsg.getSender();
+            if (log.isDebugEnabled()) {
+                log.debug("Found better mwoe from " + reportMsg);
+            }
         } else {
             // both non-null
-            if (reportMsg.getMwoe().compareTo(this.mwoe) < 0) {
-                this.mwoe = reportMsg.getMwoe();
-                this.mwoeSender = reportMsg.getSender();
-                log.debug("Found better mwoe from " + reportMsg);
+            if (this.graph.compare(reportMsg.getEdge(), this.states.mwoe[this.slot]) < 0) {
+                this.states.mwoe[this.slot] = reportMsg.getEdge();
+                this.states.mwoeSender[this.slot] = reportMsg.getSender();
+                if (log.isDebugEnabled()) {
+                    log.debug("Found better mwoe from " + reportMsg);
+                }
             }
         }
     }
@@ -421,24 +645,32 @@ public class Process extends Thread {
     /**
      * Sends reports to parent, if non-leader or changeroot, if leader.
      *
-     * <p>Called only when I have found my local mwoe and received reports from all children.</p>
+     * <p>Called only when I have found my local mwoe and received reports from all children. Only the first call of
+     * a phase reports: a late {@code Accept}, {@code Reject} or {@code Report} can find my mwoe complete once more,
+     * and a leader that reported again would send a second {@code ChangeRoot}, and with it a second {@code Connect}
+     * that turns the merge at the other end into an absorb of a component that already merged with mine.</p>
      */
     private void ackReport() {
-        if (this.mwoe == null) {
-            this.readyToExit = true;
-        }
-        if (this.uid == this.leaderId) {
-            log.info("Found MWOE=" + this.mwoe +
-                    ", children=" + this.children +
-                    ", basic edges=" + this.basicEdges);
-            if (this.mwoe != null) {
-                ChangeRoot cr = new ChangeRoot(this.mwoe);
-                sendMessage(cr, this.mwoeSender);
+        if (is(VertexStates.REPORTED)) {
+            log.debug("Already reported in this phase");
+            return;
+        }
+        setFlag(VertexStates.REPORTED, true);
+        if (this.uid == this.states.leader[this.slot]) {
+            log.info("Found MWOE=" + this.states.mwoe[this.slot] +
+                    ", children=" + describeChildren() +
+                    ", basic edges=" + this.edgeStates.describeBasic());
+            if (this.states.mwoe[this.slot] != -1) {
+                ChangeRoot cr = this.pool.changeRoot(this.states.mwoe[this.slot]);
+                sendMessage(cr, this.states.mwoeSender[this.slot]);
+            } else {
+                // no outgoing edge left, my component is done
+                collectTree(-1);
             }
         } else {
             // combine information from children and report to parent
-            Report reportMsg = new Report(this.mwoe);
-            sendMessage(reportMsg, this.parentId);
+            Report reportMsg = this.pool.report(this.states.mwoe[this.slot]);
+            sendMessage(reportMsg, this.states.parent[this.slot]);
             log.debug("Sending " + reportMsg);
         }
     }
@@ -450,17 +682,20 @@ public class Process extends Thread {
      *
      * @param testMsg Test message to reply to
      */
-    private void sendTestReply(Test testMsg) {
-        boolean inDifferentComponents = this.coreEdge == null || !this.coreEdge.equals(testMsg.getCoreEdge());
-        if (inDifferentComponents && this.level >= testMsg.getLevel()) {
-            Accept acceptMsg = new Accept(this.level);
+    private void sendTestReply(MessageSlot testMsg) {
+        int coreEdge = this.states.coreEdge[this.slot];
+        boolean inDifferentComponents = coreEdge == -1 || coreEdge != testMsg.getEdge();
+        if (inDifferentComponents && this.states.level[this.slot] >= testMsg.getLevel()) {
+            Accept acceptMsg = this.pool.accept(this.states.level[this.slot]);
             sendMessage(acceptMsg, testMsg.getSender());
         } else if (!inDifferentComponents) {
-            Reject rejectMsg = new Reject();
+            Reject rejectMsg = this.pool.reject();
             sendMessage(rejectMsg, testMsg.getSender());
         } else {
-            log.debug("Defer replying, my level=" + this.level + ", for " + testMsg);
-            this.deferQueue.add(testMsg);
+            if (log.isDebugEnabled()) {
+                log.debug("Defer replying, my level=" + this.states.level[this.slot] + ", for " + testMsg);
+            }
+            this.deferQueue.add((Test) testMsg.toMessage());
         }
     }
 
@@ -469,47 +704,47 @@ public class Process extends Thread {
      *
      * @param connect Connect message
      */
-    private void mergeOrAbsorb(Connect connect) {
-        log.debug("Received " + connect + ", connectSent=" + this.connectSent);
-        if (this.level == connect.getLevel() && connect.getMwoe().equals(this.mwoe) && this.connectSent) {
+    private void mergeOrAbsorb(MessageSlot connect) {
+        if (log.isDebugEnabled()) {
+            log.debug("Received " + connect + ", connectSent=" + is(VertexStates.CONNECT_SENT));
+        }
+        if (this.states.level[this.slot] == connect.getLevel() && connect.getEdge() == this.states.mwoe[this.slot] &&
+                is(VertexStates.CONNECT_SENT)) {
             // my previous parent becomes my child now
-            if (this.uid != this.leaderId && this.parentId != -1) {
-                this.children.add(this.parentId);
+            if (this.uid != this.states.leader[this.slot] && this.states.parent[this.slot] != -1) {
+                this.children.add(getPort(this.states.parent[this.slot]));
             }
             // find new leader, larger of two ids adjacent to mwoe
-            this.leaderId = this.uid > connect.getSender() ? this.uid : connect.getSender();
+            this.states.leader[this.slot] = this.uid > connect.getSender() ? this.uid : connect.getSender();
             // the mwoe is the core edge now, so re-classify as a branch edge
-            this.branchEdges.add(this.mwoe);
-            this.basicEdges.remove(this.mwoe);
-            this.coreEdge = this.mwoe;
-            this.level += 1;
-            this.connectSent = false;   // because now, I will start new phase of searching for mwoe
+            this.edgeStates.branch(getPortOfEdge(this.states.mwoe[this.slot]));
+            this.states.coreEdge[this.slot] = this.states.mwoe[this.slot];
+            this.states.level[this.slot] += 1;
+            setFlag(VertexStates.CONNECT_SENT, false);   // because now, I will start new phase of searching for mwoe
             log.info("MERGE with vertex=" + connect.getSender() +
-                    ", new leader=" + leaderId + ", new level=" + this.level);
-            if (this.uid == this.leaderId) {
-                this.parentId = -1;     // I am root
-                this.children.add(connect.getSender());
+                    ", new leader=" + this.states.leader[this.slot] + ", new level=" + this.states.level[this.slot]);
+            if (this.uid == this.states.leader[this.slot]) {
+                this.states.parent[this.slot] = -1;     // I am root
+                this.children.add(getPort(connect.getSender()));
                 wakeUp();
             }
-            log.debug("After merge, children=" + this.children + ", new parent=" + this.parentId +
-                    ", basic edges=" + this.basicEdges + ", new level=" + this.level);
-        } else if (this.level > connect.getLevel()) {
+            log.debug("After merge, children=" + describeChildren() + ", new parent=" + this.states.parent[this.slot] +
+                    ", basic edges=" + this.edgeStates.describeBasic() + ", new level=" + this.states.level[this.slot]);
+        } else if (this.states.level[this.slot] > connect.getLevel()) {
             // absorb this component
-            this.children.add(connect.getSender());
-            Edge mwoeOther = connect.getMwoe();
+            this.children.add(getPort(connect.getSender()));
+            int mwoeOther = connect.getEdge();
             // re-classify this mwoe as a branch edge
-            this.branchEdges.add(mwoeOther);
-            this.basicEdges.remove(mwoeOther);
+            this.edgeStates.branch(getPortOfEdge(mwoeOther));
             log.info("ABSORB " + connect.getSender() +
-                    ", basic edges=" + this.basicEdges +
-                    ", branch edges=" + this.branchEdges);
+                    ", basic edges=" + this.edgeStates.describeBasic() +
+                    ", branch edges=" + this.edgeStates.describeBranches());
             // does not update core edge or level
             broadcast(mwoeOther);
         } else {
-            if (!this.pendingConnects.contains(connect)) {
-                this.pendingConnects.add(connect);
-                log.info("Pending " + connect);
-            }
+            Connect pendingConnect = (Connect) connect.toMessage();
+            this.pendingConnects.add(pendingConnect);
+            log.info("Pending " + pendingConnect);
         }
     }
 
@@ -518,37 +753,42 @@ public class Process extends Thread {
      *
      * @param initiateMsg Initiate message
      */
-    private void handleInitiate(Initiate initiateMsg) {
+    private void handleInitiate(MessageSlot initiateMsg) {
         // update own state, start search for new mwoe
-        this.acceptReceivedInPhase = false;
-        this.mwoe = null;
+        setFlag(VertexStates.ACCEPT_RECEIVED, false);
+        setFlag(VertexStates.REPORTED, false);
+        this.states.mwoe[this.slot] = -1;
         if (initiateMsg.getSender() == this.uid) {  // i.e. wake up message
-            this.parentId = -1;
-            this.leaderId = this.uid;
+            this.states.parent[this.slot] = -1;
+            this.states.leader[this.slot] = this.uid;
         } else {
-            this.parentId = initiateMsg.getSender();
+            this.states.parent[this.slot] = initiateMsg.getSender();
+        }
+        if (this.states.parent[this.slot] != -1) {
+            this.children.remove(getPort(this.states.parent[this.slot]));
         }
-        this.children.remove(parentId);
-        this.receivedReportsFrom.clear();   // expecting fresh reports from all children now
-        this.level = initiateMsg.getLevel();
-        this.leaderId = initiateMsg.getLeader();
+        this.children.clearReports();   // expecting fresh reports from all children now
+        this.states.level[this.slot] = initiateMsg.getLevel();
+        this.states.leader[this.slot] = initiateMsg.getLeader();
         // also update component id, if received from parent (not self)
         if (initiateMsg.getSender() != this.uid) {
-            this.coreEdge = initiateMsg.getCoreEdge();
+            this.states.coreEdge[this.slot] = initiateMsg.getEdge();
         }
-        if (this.leaderId != this.uid) {
-            log.debug("Received " + initiateMsg +
-                    ", parent=" + parentId +
-                    ", level=" + level +
-                    ", leader=" + leaderId);
+        if (this.states.leader[this.slot] != this.uid) {
+            if (log.isDebugEnabled()) {
+                log.debug("Received " + initiateMsg +
+                        ", parent=" + this.states.parent[this.slot] +
+                        ", level=" + this.states.level[this.slot] +
+                        ", leader=" + this.states.leader[this.slot]);
+            }
         } else {
             log.debug("Start search for next mwoe");
         }
         // broadcast initiate to all processes in component, i.e. along branch edges
         if (!this.children.isEmpty()) {
-            log.debug("Starting initiate broadcast, basic edges=" + this.basicEdges +
-                    ", branch edges=" + this.branchEdges);
-            broadcast(this.branchEdges);
+            log.debug("Starting initiate broadcast, basic edges=" + this.edgeStates.describeBasic() +
+                    ", branch edges=" + this.edgeStates.describeBranches());
+            broadcastOverBranches();
         }
         testBasicEdge();
     }
@@ -558,21 +798,24 @@ public class Process extends Thread {
      *
      * @param msg Accept message
      */
-    private void handleAccept(Accept msg) {
-        log.debug("Received " + msg);
-        Edge e = getEdge(msg.getSender());
-        // add this to basic edges
-        this.basicEdges.add(e);
-        if (this.mwoe == null) {
-            this.mwoe = e;
-            this.mwoeSender = this.uid; // one of basic edges an mwoe
+    private void handleAccept(MessageSlot msg) {
+        if (log.isDebugEnabled()) {
+            log.debug("Received " + msg);
+        }
+        int port = getPort(msg);
+        int e = this.graph.edge(this.uid, port);
+        // put it back into the basic edges
+        this.edgeStates.accept(port);
+        if (this.states.mwoe[this.slot] == -1) {
+            this.states.mwoe[this.slot] = e;
+            this.states.mwoeSender[this.slot] = this.uid; // one of basic edges an mwoe
         } else {
-            if (this.mwoe.compareTo(e) > 0) {
-                this.mwoe = e;
-                this.mwoeSender = this.uid;
+            if (this.graph.compare(this.states.mwoe[this.slot], e) > 0) {
+                this.states.mwoe[this.slot] = e;
+                this.states.mwoeSender[this.slot] = this.uid;
             }
         }
-        this.acceptReceivedInPhase = true;  // consider what happens if no basic edges left
+        setFlag(VertexStates.ACCEPT_RECEIVED, true);  // consider what happens if no basic edges left
         if (foundLocalMwoe()) {
             ackReport();
         }
@@ -584,9 +827,11 @@ public class Process extends Thread {
      *
      * @param reportMsg Report message
      */
-    private void handleReports(Report reportMsg) {
+    private void handleReports(MessageSlot reportMsg) {
         updateMWOE(reportMsg);
-        log.debug("Received " + reportMsg + ", foundLocalMwoe=" + foundLocalMwoe());
+        if (log.isDebugEnabled()) {
+            log.debug("Received " + reportMsg + ", foundLocalMwoe=" + foundLocalMwoe());
+        }
         if (foundLocalMwoe()) {
             ackReport();
         }
@@ -598,24 +843,26 @@ public class Process extends Thread {
      *
      * @param crMsg Changeroot message
      */
-    private void handleChangeroot(ChangeRoot crMsg) {
-        log.debug("Received " + crMsg);
-        this.mwoe = crMsg.getMwoe();    // update the mwoe of my component
-        this.basicEdges.remove(this.mwoe); // mwoe becomes branch edge
-        int u = this.mwoe.either();
-        int v = this.mwoe.other(u);
+    private void handleChangeroot(MessageSlot crMsg) {
+        if (log.isDebugEnabled()) {
+            log.debug("Received " + crMsg);
+        }
+        this.states.mwoe[this.slot] = crMsg.getEdge();    // update the mwoe of my component
+        int u = this.graph.either(this.states.mwoe[this.slot]);
+        int v = this.graph.opposite(this.states.mwoe[this.slot], u);
         if (u == this.uid || v == this.uid) {   // I am the process adjacent to mwoe
-            Connect connect = new Connect(this.level, this.mwoe);
-            sendMessage(connect, this.mwoe);    // send connect over this edge
-            this.connectSent = true;
+            this.edgeStates.branch(getPortOfEdge(this.states.mwoe[this.slot]));   // mwoe becomes branch edge
+            Connect connect = this.pool.connect(this.states.level[this.slot], this.states.mwoe[this.slot]);
+            sendOverEdge(connect, this.states.mwoe[this.slot]);   // send connect over this edge
+            setFlag(VertexStates.CONNECT_SENT, true);
             // check if connect already sent over that edge
-            if (!this.pendingConnects.isEmpty() && this.pendingConnects.peek().getMwoe().equals(this.mwoe)) {
-                processPendingConnects();
+            if (mergePendingConnect()) {
+                processPendingConnects();   // my level grew
             }
         } else {
             // forward changeroot along the path
-            ChangeRoot forwardMsg = new ChangeRoot(this.mwoe);
-            sendMessage(forwardMsg, this.mwoeSender);
+            ChangeRoot forwardMsg = this.pool.changeRoot(this.states.mwoe[this.slot]);
+            sendMessage(forwardMsg, this.states.mwoeSender[this.slot]);
         }
     }
 
@@ -624,13 +871,14 @@ public class Process extends Thread {
      *
      * @param msg Reject message
      */
-    private void handleReject(Message msg) {
-        Edge e = getEdge(msg.getSender());  // edge along which reject was sent
-        this.rejectedEdges.add(e);
-        this.basicEdges.remove(e); // if reject sent, no longer a basic edge (don't test again)
-        log.debug("Received " + msg +
-                ", basic edges=" + this.basicEdges +
-                ", rejected edges=" + this.rejectedEdges);
+    private void handleReject(MessageSlot msg) {
+        // if reject sent, no longer a basic edge (don't test again)
+        this.edgeStates.reject(getPort(msg));
+        if (log.isDebugEnabled()) {
+            log.debug("Received " + msg +
+                    ", basic edges=" + this.edgeStates.describeBasic() +
+                    ", rejected edges=" + this.edgeStates.describeRejected());
+        }
         if (foundLocalMwoe()) {
             ackReport();
         } else {
@@ -639,45 +887,214 @@ public class Process extends Thread {
         }
     }
 
+    /**
+     * Starts collecting the edges of my subtree of the final spanning tree, on a {@code Finish} from my parent, or
+     * because I am the leader and my component is done.
+     *
+     * <p>I pass the {@code Finish} on to my children and stream the edges to them up as mine, so every tree edge is
+     * collected once, by its upper end.</p>
+     *
+     * @param parent who I stream my subtree edges to, -1 if I am the leader
+     */
+    private void collectTree(int parent) {
+        if (this.collecting) {
+            return;
+        }
+        this.collecting = true;
+        this.resultParent = parent;
+        if (parent == -1) {
+            this.treeEdges = new EdgeList();
+        }
+        for (int port = this.children.next(0); port >= 0; port = this.children.next(port + 1)) {
+            sendMessage(this.pool.finish(), this.graph.neighbor(this.uid, port));
+            passTreeEdge(this.graph.edge(this.uid, port));
+            this.awaitedResults++;
+        }
+        if (this.awaitedResults == 0) {
+            handOnTree();
+        }
+    }
+
+    /**
+     * Passes an edge of my subtree up to my parent, or keeps it if I am the leader.
+     *
+     * @param edge edge id
+     */
+    private void passTreeEdge(int edge) {
+        if (this.resultParent == -1) {
+            this.treeEdges.add(edge);
+        } else {
+            sendMessage(this.pool.result(edge), this.resultParent);
+        }
+    }
+
+    /**
+     * On receiving {@code Result}, pass the edge it carries on, or, if it marks the end of a child's subtree, hand my
+     * subtree on once all children are complete.
+     *
+     * @param msg Result message
+     */
+    private void handleResult(MessageSlot msg) {
+        if (msg.getEdge() != -1) {
+            passTreeEdge(msg.getEdge());
+            return;
+        }
+        this.awaitedResults--;
+        if (this.awaitedResults == 0) {
+            handOnTree();
+        }
+    }
+
+    /**
+     * Tells my parent that my subtree is complete. The leader sends the tree to the master instead, see
+     * {@link #exitIfDone()}.
+     */
+    private void handOnTree() {
+        if (this.resultParent != -1) {
+            sendMessage(this.pool.result(-1), this.resultParent);
+        } else {
+            log.debug("Collected " + this.treeEdges.size() + " tree edges");
+        }
+        setFlag(VertexStates.READY_TO_EXIT, true);
+    }
+
     /**
      * Processes the messages I receive.
+     */
+    void handleMessages() {
+        MessageSlot msg = this.received;
+        while (this.inbox.poll(msg, this.pool)) {
+            switch (msg.getType()) {
+                case INITIATE:
+                    // sometimes multiple initiate messages are sent because of wake up, merge and absorb operations
+                    handleInitiate(msg);
+                    break;
+                case TEST:
+                    sendTestReply(msg);
+                    break;
+                case ACCEPT:
+                    handleAccept(msg);
+                    break;
+                case REJECT:
+                    handleReject(msg);
+                    break;
+                case REPORT:
+                    handleReports(msg);
+                    break;
+                case CHANGE_ROOT:   // note current leader can't receive a changeroot message
+                    // check if my id is adjacent to mwoe
+                    handleChangeroot(msg);
+                    break;
+                case CONNECT:
+                    mergeOrAbsorb(msg);
+                    break;
+                case FINISH:
+                    collectTree(msg.getSender());
+                    break;
+                case RESULT:
+                    handleResult(msg);
+                    break;
+                case EXIT:
+                    log.debug("Received KILL from the master");
+                    setFlag(VertexStates.SELF_KILL, true);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * First half of a round: replies to deferred {@code Test} messages and sends the messages due in this round.
      *
-     * @throws InterruptedException
+     * <p>Must be followed by a synchronization point before any process calls {@link #handleMessages()}.</p>
      */
-    private void handleMessages() throws InterruptedException {
-        Message msg;
-        while (!this.queue.isEmpty()) {
-            msg = this.queue.take();
-            // sometimes multiple initiate messages are sent because of wake up, merge and absorb operations
-            if (msg instanceof Initiate) {
-                Initiate initiateMsg = ((Initiate) msg);
-                handleInitiate(initiateMsg);
-            } else if (msg instanceof Test) {
-                Test testMsg = ((Test) msg);
-                sendTestReply(testMsg);
-            } else if (msg instanceof Accept) {
-                Accept acceptMsg = ((Accept) msg);
-                handleAccept(acceptMsg);
-            } else if (msg instanceof Reject) {
-                Reject rejectMsg = ((Reject) msg);
-                handleReject(rejectMsg);
-            } else if (msg instanceof Report) {
-                Report reportMsg = ((Report) msg);
-                handleReports(reportMsg);
-            } else if (msg instanceof ChangeRoot) { // note current leader can't receive a changeroot message
-                // check if my id is adjacent to mwoe
-                ChangeRoot crMsg = ((ChangeRoot) msg);
-                handleChangeroot(crMsg);
-            } else if (msg instanceof Connect) {
-                Connect connectMsg = ((Connect) msg);
-                mergeOrAbsorb(connectMsg);
-            } else if (msg instanceof Exit) {
-                log.debug("Received KILL from " + this.master.getName());
-                this.selfKill = true;
+    void sendMessages() {
+        processDeferQueue();
+        processSendBuffer();
+    }
+
+    /**
+     * Exits, once, as soon as I have handed my subtree edges on and have nothing left to send. The leader sends EXIT
+     * with the whole tree to the master; in SHARDED mode there is no master and the shards gather the tree.
+     */
+    void exitIfDone() {
+        if (is(VertexStates.READY_TO_EXIT) && this.sendBuffer.isEmpty() && !is(VertexStates.EXIT_SENT)) {
+            log.info("Branch edges=" + this.edgeStates.describeBranches());
+            if (this.resultParent == -1 && this.master != null) {
+                sendTerminationToMaster();
             }
+            setFlag(VertexStates.EXIT_SENT, true);
         }
     }
 
+    /**
+     * Checks whether I have exited.
+     *
+     * @return true once I have nothing left to do until the master kills me
+     */
+    boolean hasSentExit() {
+        return is(VertexStates.EXIT_SENT);
+    }
+
+    /**
+     * Gets the edges of the final spanning tree of my component, streamed up to me as its leader.
+     *
+     * @return edge list, null unless I am a leader whose component is done
+     */
+    EdgeList getTreeEdges() {
+        return this.treeEdges;
+    }
+
+    /**
+     * Gets the core edge of my component.
+     *
+     * @return edge id, -1 if none
+     */
+    int getCoreEdge() {
+        return this.states.coreEdge[this.slot];
+    }
+
+    /**
+     * Checks whether a deferred {@code Test} can be answered at the start of the next round.
+     *
+     * @return true if the level I reached allows replying to a deferred {@code Test}
+     */
+    boolean hasDeferredReplies() {
+        return this.deferQueue.minLevel() <= this.states.level[this.slot];
+    }
+
+    /**
+     * Computes the earliest round in which I have something to do, besides handling messages delivered to me.
+     *
+     * @return the round in which the head of my send buffer is due, the next round if I can answer a deferred
+     * {@code Test}, or {@code Integer.MAX_VALUE} if I have nothing to do
+     */
+    int nextDueRound() {
+        if (hasDeferredReplies()) {
+            return this.round + 1;
+        }
+        return this.sendBuffer.isEmpty() ? Integer.MAX_VALUE : this.sendBuffer.peek().getRound();
+    }
+
+    /**
+     * Ends the current round, after the messages of the round have been handled.
+     *
+     * <p>Notifies the master once I am ready to exit and moves on to the next round.</p>
+     *
+     * @param nextRound the round to move on to, rounds in between are known to have nothing due
+     * @return true if I received KILL from the master and must shut down
+     */
+    boolean finishRound(int nextRound) {
+        exitIfDone();
+
+        if (is(VertexStates.SELF_KILL)) {
+            log.debug("Shutting down...");
+            return true;
+        }
+
+        this.round = nextRound;
+        return false;
+    }
+
     /**
      * This defines what I do.
      *
@@ -685,11 +1102,15 @@ public class Process extends Thread {
      * @throws BrokenBarrierException
      */
     private void executeTasks() throws InterruptedException, BrokenBarrierException, TimeoutException {
-        processDeferQueue();
-        processSendBuffer();
-        this.barrier.await();
-        handleMessages();
-        this.barrier.await();
+        sendMessages();
+        this.coordinator.dueAt(nextDueRound());
+        this.barrier.await(this.uid);
+        // skipped by everyone if nobody sent anything in this round
+        if (this.coordinator.isHandlePhase()) {
+            handleMessages();
+            this.coordinator.dueAt(nextDueRound());
+            this.barrier.await(this.uid);
+        }
     }
 
     @Override
@@ -699,19 +1120,10 @@ public class Process extends Thread {
             while (true) {
                 executeTasks();
 
-                if (this.readyToExit && this.sendBuffer.isEmpty() && !this.exitSent) {
-                    log.info("Branch edges=" + branchEdges);
-                    sendTerminationToMaster();
-                    this.exitSent = true;
-                }
-
-                if (this.selfKill) {
-                    log.debug("Shutting down...");
+                if (finishRound(this.coordinator.getRound())) {
                     this.barrier.reset();   // barrier not needed anymore
                     break;
                 }
-
-                this.round++;
             }
         } catch (InterruptedException e) {
             e.printStackTrace();
@@ -0,0 +1,129 @@
+package ghs.mst;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@code RoundCoordinator} is the barrier action of the barrier the processes (or the workers) of the threaded
+ * modes share. It decides which half of a round runs next and which round comes after the current one.
+ *
+ * <p>Each round starts with the send half, after which the barrier trips. If nobody delivered a message in the send
+ * half, every queue is empty and the handle half would be a no-op, so it is skipped together with its barrier. Before
+ * the last barrier of a round, every party reports the earliest round in which it has work due. The coordinator then
+ * moves everyone straight to the smallest of these rounds, instead of stepping through rounds in which no message is
+ * due and no queue has anything in it.</p>
+ *
+ * <p>Once the master has sent KILL, the handle half runs in every round: a party that skips its idle processes may
+ * only notice the shutdown after the round in which the KILL was delivered, and must still get a handle half to
+ * handle it in.</p>
+ *
+ * <p>The action runs on the last thread to arrive at the barrier, while every other party waits, so plain fields are
+ * enough for the state only the action touches. Everything the parties read after the barrier is published by it.</p>
+ */
+class RoundCoordinator implements Runnable {
+    private volatile boolean delivered = true;  // the wake up messages are queued before the first round
+    private AtomicInteger nextDue = new AtomicInteger(Integer.MAX_VALUE);
+    private boolean handlePhase;                // whether the handle half of the current round runs
+    private volatile boolean shuttingDown;      // the master has sent KILL to every process
+    private int round;
+
+    // statistics
+    private volatile int executedRounds;
+    private volatile int skippedHandlePhases;
+
+    /**
+     * Records that a message was put into some queue. The handle half of the round will run.
+     */
+    void messageDelivered() {
+        if (!this.delivered) {
+            this.delivered = true;
+        }
+    }
+
+    /**
+     * Records that the master has sent KILL to every process, so engines that skip idle processes must run all of
+     * them again.
+     */
+    void shutDown() {
+        this.shuttingDown = true;
+    }
+
+    /**
+     * Checks whether the master has sent KILL to every process.
+     *
+     * @return true once shutting down
+     */
+    boolean isShuttingDown() {
+        return this.shuttingDown;
+    }
+
+    /**
+     * Checks whether a message was put into some queue since the last send half ended.
+     *
+     * @return true if the handle half of the round will run
+     */
+    boolean isDelivered() {
+        return this.delivered;
+    }
+
+    /**
+     * Reports that a party has work due in a round.
+     *
+     * <p>Must be called before the last barrier of the round, once per party or more.</p>
+     *
+     * @param dueRound earliest round in which the party has work, {@code Integer.MAX_VALUE} if none
+     */
+    void dueAt(int dueRound) {
+        int current = this.nextDue.get();
+        while (dueRound < current && !this.nextDue.compareAndSet(current, dueRound)) {
+            current = this.nextDue.get();
+        }
+    }
+
+    /**
+     * Tells the parties, after the first barrier of a round, whether they have to handle messages and meet at a
+     * second barrier.
+     *
+     * @return true if the handle half of the round runs
+     */
+    boolean isHandlePhase() {
+        return this.handlePhase;
+    }
+
+    /**
+     * Gets the round every party moves to once the current round is over.
+     *
+     * @return the next round
+     */
+    int getRound() {
+        return this.round;
+    }
+
+    int getExecutedRounds() {
+        return this.executedRounds;
+    }
+
+    int getSkippedHandlePhases() {
+        return this.skippedHandlePhases;
+    }
+
+    @Override
+    public void run() {
+        if (!this.handlePhase) {
+            // the send half is over
+            if (this.delivered || this.shuttingDown) {
+                this.delivered = false;
+                this.handlePhase = true;
+                this.nextDue.set(Integer.MAX_VALUE);    // the handle half may schedule earlier messages
+                return;
+            }
+            this.skippedHandlePhases++;
+        } else {
+            this.handlePhase = false;
+        }
+
+        // the round is over, jump to the next round in which something is due
+        int next = this.nextDue.getAndSet(Integer.MAX_VALUE);
+        this.round = next == Integer.MAX_VALUE || next <= this.round ? this.round + 1 : next;
+        this.executedRounds++;
+    }
+}
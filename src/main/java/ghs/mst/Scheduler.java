@@ -0,0 +1,20 @@
+package ghs.mst;
+
+/**
+ * A {@code Scheduler} is told by the processes in which rounds they have work to do.
+ *
+ * <p>Engines that run every process in every round do not need one. Engines that only run the processes with work
+ * due use it to find out which processes to activate in a round.</p>
+ */
+interface Scheduler {
+    /**
+     * Notifies the scheduler that a process has work due in a round.
+     *
+     * <p>Called with a future round when the process buffers a message to be sent in that round, and with the current
+     * round when a message is delivered to the process and must be handled before the round ends.</p>
+     *
+     * @param p     process that must be activated
+     * @param round round in which it must be activated
+     */
+    void wakeAt(Process p, int round);
+}
@@ -0,0 +1,269 @@
+package ghs.mst;
+
+import ghs.graph.Partition;
+import ghs.message.Exit;
+import ghs.message.Message;
+import ghs.message.MessagePool;
+import ghs.transport.Frame;
+import ghs.transport.Transport;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The {@code ShardThread} advances the processes of one shard of a network that is split over several JVMs.
+ *
+ * <p>It runs the same rounds as a {@link WorkerThread}, but the barrier between the two halves of a round is an
+ * exchange over a {@link Transport}: every shard sends every other one a frame with what its processes sent across
+ * shards in the send half, whether it delivered anything and the earliest round in which it has work due. Because all
+ * shards feed the same inputs to their {@link RoundCoordinator}, they all agree on whether to handle messages and on
+ * the round to move to, without a central coordinator.</p>
+ *
+ * <p>Frame layout: {@code round, due round, flags, count} followed by {@code count} messages in the layout of a
+ * {@link MessageBatch}. Flag {@link #DELIVERED} tells that the shard delivered a message in the send half, flag
+ * {@link #DONE} that all its processes have exited.</p>
+ *
+ * <p>Once every shard is done, every shard delivers KILL to its processes at the same point of the same round, so they
+ * all stop in the same round. By then the edges of the tree have reached the leaders in {@code Result} messages, which
+ * cross shards like any other message. A last exchange, see {@link #gather()}, sends shard 0 the trees of the leaders
+ * in the other shards, together with the leader and its core edge.</p>
+ */
+class ShardThread extends Thread implements Outbox {
+    private static final long DELIVERED = 1;
+    private static final long DONE = 2;
+    private static final int HEADER_WORDS = 4;
+
+    private Logger log = Logger.getLogger(this.getName());
+
+    private List<Process> processes;    // processes of this shard
+    private Process[] network;          // every process by uid, null if it runs in another shard
+    private Partition shards;           // shard of every vertex
+    private Transport transport;
+    private RoundCoordinator coordinator;
+    private MasterThread master;        // told if this shard dies
+    private ActiveSet active;           // processes with work in the current round
+    private MessagePool pool = new MessagePool();   // messages of the processes of this shard
+    private int round;
+
+    private Frame[] out;
+    private Frame[] in;
+
+    // result, complete on shard 0 only
+    private Set<Integer> mstEdges = new HashSet<>();
+    private int leaderId = -1;
+    private int coreEdge = -1;
+
+    /**
+     * Instantiates a new {@code ShardThread}.
+     *
+     * @param name        name of the thread
+     * @param processes   processes of this shard
+     * @param network     every process by uid, null if it runs in another shard
+     * @param shards      shard of every vertex
+     * @param transport   connection to the other shards
+     * @param coordinator decides the halves and rounds to run, from the inputs of all shards
+     * @param master      the master of this shard, told if this shard dies
+     */
+    ShardThread(String name, List<Process> processes, Process[] network, Partition shards, Transport transport,
+                RoundCoordinator coordinator, MasterThread master) {
+        super(name);
+        this.processes = processes;
+        this.network = network;
+        this.shards = shards;
+        this.transport = transport;
+        this.coordinator = coordinator;
+        this.master = master;
+        this.active = new ActiveSet(processes, network.length);
+        for (Process p : processes) {
+            p.setPool(this.pool);
+        }
+        this.out = new Frame[transport.getShards()];
+        this.in = new Frame[transport.getShards()];
+        for (int s = 0; s < transport.getShards(); s++) {
+            this.out[s] = new Frame();
+            this.in[s] = new Frame();
+            reset(this.out[s]);
+        }
+    }
+
+    /**
+     * Empties a frame, leaving room for the header.
+     *
+     * @param frame the frame
+     */
+    private static void reset(Frame frame) {
+        frame.clear();
+        for (int i = 0; i < HEADER_WORDS; i++) {
+            frame.add(0);
+        }
+    }
+
+    @Override
+    public void send(int receiver, int port, Message m) {
+        MessageBatch.append(this.out[this.shards.partOf(receiver)], receiver, port, m);
+    }
+
+    /**
+     * Exchanges frames with all other shards, delivers the messages received and feeds the coordinator.
+     *
+     * @param flags flags of this shard
+     * @return flags of all shards, and-ed for {@link #DONE} and or-ed for {@link #DELIVERED}
+     * @throws IOException if a shard can't be reached
+     */
+    private long exchange(long flags) throws IOException {
+        int due = this.active.dueRound();
+        for (int s = 0; s < this.out.length; s++) {
+            Frame frame = this.out[s];
+            frame.set(0, this.round);
+            frame.set(1, due);
+            frame.set(2, flags);
+            frame.set(3, (frame.size() - HEADER_WORDS) / MessageBatch.WORDS);
+        }
+        this.transport.exchange(this.out, this.in);
+
+        boolean delivered = (flags & DELIVERED) != 0;
+        boolean done = (flags & DONE) != 0;
+        for (int s = 0; s < this.in.length; s++) {
+            if (s == this.transport.getShard()) {
+                continue;
+            }
+            Frame frame = this.in[s];
+            if (frame.get(0) != this.round) {
+                throw new IOException("Shard " + s + " is in round " + frame.get(0) + ", expected " + this.round);
+            }
+            due = Math.min(due, (int) frame.get(1));
+            delivered |= (frame.get(2) & DELIVERED) != 0;
+            done &= (frame.get(2) & DONE) != 0;
+            MessageBatch.deliver(frame, HEADER_WORDS, (int) frame.get(3), this.network, this.active);
+            reset(this.out[s]);
+        }
+        if (delivered) {
+            this.coordinator.messageDelivered();
+        }
+        this.coordinator.dueAt(due);
+        return (delivered ? DELIVERED : 0) | (done ? DONE : 0);
+    }
+
+    /**
+     * Sends the tree edges collected by the leaders in this shard to shard 0, which adds them to its own. The edges
+     * reached the leaders as {@code Result} messages, over the links between the shards where needed. The frame starts
+     * with the leader and the core edge, both -1 if the leader runs in another shard.
+     *
+     * @throws IOException if a shard can't be reached
+     */
+    private void gather() throws IOException {
+        for (Process p : this.processes) {
+            if (p.getTreeEdges() != null) {
+                this.leaderId = p.getUid();
+                this.coreEdge = p.getCoreEdge();
+                for (int e : p.getTreeEdges().toArray()) {
+                    this.mstEdges.add(e);
+                }
+            }
+        }
+        for (int s = 0; s < this.out.length; s++) {
+            this.out[s].clear();
+        }
+        if (this.transport.getShard() != 0) {
+            Frame frame = this.out[0];
+            frame.add(this.leaderId);
+            frame.add(this.coreEdge);
+            for (int e : this.mstEdges) {
+                frame.add(e);
+            }
+        }
+        this.transport.exchange(this.out, this.in);
+        if (this.transport.getShard() == 0) {
+            for (int s = 1; s < this.in.length; s++) {
+                Frame frame = this.in[s];
+                if (frame.size() > 0 && frame.get(0) != -1) {
+                    this.leaderId = (int) frame.get(0);
+                    this.coreEdge = (int) frame.get(1);
+                }
+                for (int i = 2; i < frame.size(); i++) {
+                    this.mstEdges.add((int) frame.get(i));
+                }
+            }
+        }
+    }
+
+    Set<Integer> getMstEdges() {
+        return this.mstEdges;
+    }
+
+    int getLeaderId() {
+        return this.leaderId;
+    }
+
+    int getCoreEdge() {
+        return this.coreEdge;
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (Process p : this.processes) {
+                p.wakeUp();
+            }
+            this.active.begin(this.round);
+            this.active.activateAll();  // every process handles its wake up message in the first round
+            boolean killSent = false;
+            while (true) {
+                // processes activated by deliveries only have messages to handle
+                List<Process> active = this.active.getActive();
+                int senders = active.size();
+                for (int i = 0; i < senders; i++) {
+                    active.get(i).sendMessages();
+                }
+                long flags = (this.coordinator.isDelivered() ? DELIVERED : 0) | (this.active.allExited() ? DONE : 0);
+                flags = exchange(flags);
+                this.coordinator.run();
+                // skipped by every shard if nobody sent anything in this round
+                if (this.coordinator.isHandlePhase()) {
+                    for (Process p : active) {
+                        p.handleMessages();
+                    }
+                    exchange(0);
+                    this.coordinator.run();
+                }
+
+                // every shard sees the same flags, so they all send KILL at the same point
+                boolean killNow = (flags & DONE) != 0 && !killSent;
+                if (killNow) {
+                    Exit killMsg = new Exit(-1);
+                    for (Process p : this.processes) {
+                        p.getInbox().offerControl(killMsg);
+                    }
+                    this.coordinator.messageDelivered();
+                    killSent = true;
+                }
+
+                this.round = this.coordinator.getRound();
+                if (this.active.finish(this.round)) {
+                    log.debug("Shutting down...");
+                    log.info(Process.describeDeliveries(this.processes));
+                    log.info(this.pool);
+                    log.info(this.active.describe());
+                    break;
+                }
+                this.active.begin(this.round);
+                if (killNow) {
+                    this.active.activateAll();  // to handle the KILL
+                }
+            }
+            gather();
+            this.transport.close();
+        } catch (IOException | RuntimeException e) {
+            log.error("Shard failed", e);
+            this.master.engineStopped(e);
+            try {
+                this.transport.close();     // so the other shards fail instead of waiting for this one
+            } catch (IOException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package ghs.mst;
+
+import ghs.message.MessagePool;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The {@code SimulationThread} runs all {@code Process} state machines as a discrete-event simulation.
+ *
+ * <p>Instead of stepping every process through every round, it keeps one agenda of the processes that have work due,
+ * keyed by round, and jumps straight from one due round to the next. A process is due in a round when a message in its
+ * send buffer must go out in that round, when a message is delivered to it in that round, or when it can answer a
+ * deferred {@code Test} after a level change in the previous round. Rounds in which no process is due are skipped
+ * entirely. The send buffers and the delays are the same as in the threaded modes, so every link stays FIFO.</p>
+ *
+ * <p>When the agenda runs empty, no process can ever act again. If some process has not exited by then, the run has
+ * stalled, and the simulation tells the master so instead of leaving it waiting for EXITs that never come.</p>
+ */
+public final class SimulationThread extends Thread implements Scheduler {
+    private Logger log = Logger.getLogger(this.getName());
+
+    private Process[] processes;
+    private MasterThread master;        // told if the simulation stalls
+    private TreeMap<Integer, List<Process>> agenda = new TreeMap<>();   // round -> processes due in that round
+    private List<Process> active = new ArrayList<>();                 // processes activated in the current round
+    private int[] activeRound;          // last round in which each process was activated, indexed by uid
+    private MessagePool pool = new MessagePool();   // messages of all processes
+    private int round;
+
+    /**
+     * Instantiates a new {@code SimulationThread}.
+     *
+     * @param name      name of the thread
+     * @param processes all processes of the network, indexed by uid
+     * @param master    the master the leaders send their EXIT to
+     */
+    public SimulationThread(String name, Process[] processes, MasterThread master) {
+        super(name);
+        this.processes = processes;
+        this.master = master;
+        this.activeRound = new int[processes.length];
+        Arrays.fill(this.activeRound, -1);
+        for (Process p : processes) {
+            p.setScheduler(this);
+            p.setPool(this.pool);
+        }
+    }
+
+    @Override
+    public void wakeAt(Process p, int round) {
+        if (round == this.round) {
+            activate(p);
+        } else {
+            this.agenda.computeIfAbsent(round, r -> new ArrayList<>()).add(p);
+        }
+    }
+
+    /**
+     * Activates a process in the current round, unless it is already active.
+     *
+     * @param p Process instance
+     */
+    private void activate(Process p) {
+        if (this.activeRound[p.getUid()] != this.round) {
+            this.activeRound[p.getUid()] = this.round;
+            p.setRound(this.round);
+            this.active.add(p);
+        }
+    }
+
+    /**
+     * Runs one round for the processes that are due in it.
+     *
+     * @param due processes whose send buffer or defer queue needs attention in this round
+     */
+    private void runRound(List<Process> due) {
+        this.active.clear();
+        for (Process p : due) {
+            activate(p);
+        }
+        // processes activated by deliveries only have messages to handle
+        int senders = this.active.size();
+        for (int i = 0; i < senders; i++) {
+            this.active.get(i).sendMessages();
+        }
+        for (Process p : this.active) {
+            p.handleMessages();
+        }
+        for (Process p : this.active) {
+            p.exitIfDone();
+            if (p.hasDeferredReplies()) {
+                wakeAt(p, this.round + 1);
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        // every process handles its wake up message in the first round
+        List<Process> all = new ArrayList<>(Arrays.asList(this.processes));
+        for (Process p : this.processes) {
+            p.wakeUp();
+        }
+
+        long simulatedRounds = 1;
+        try {
+            this.round = 0;
+            runRound(all);
+            while (!this.agenda.isEmpty()) {
+                Map.Entry<Integer, List<Process>> next = this.agenda.pollFirstEntry();
+                this.round = next.getKey();
+                runRound(next.getValue());
+                simulatedRounds++;
+            }
+        } catch (RuntimeException e) {
+            this.master.engineStopped(e);
+            throw e;
+        }
+        log.info("No events left after round " + this.round + ", simulated " + simulatedRounds + " rounds.");
+        log.info(Process.describeDeliveries(Arrays.asList(this.processes)));
+        log.info(this.processes[0].getStates().describe());
+        log.info(this.pool);
+
+        int exited = 0;
+        for (Process p : this.processes) {
+            if (p.hasSentExit()) {
+                exited++;
+            }
+        }
+        if (exited < this.processes.length) {
+            String reason = "Stalled in round " + this.round + ", only " + exited + " of " + this.processes.length +
+                    " processes have exited";
+            log.error(reason);
+            this.master.engineStopped(new IllegalStateException(reason));
+        }
+    }
+}
@@ -1,14 +1,54 @@
 package ghs.mst;
 
-import edu.princeton.cs.algs4.EdgeWeightedGraph;
-import edu.princeton.cs.algs4.In;
+import ghs.graph.CompactGraph;
+import ghs.graph.GraphFile;
+import ghs.graph.TextGraphReader;
+import ghs.transport.SharedMemoryTransport;
+import ghs.transport.SocketTransport;
+import ghs.transport.Transport;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
 
 public class TestMST {
-    public static void main(String[] args) {
-        // read graph
-        In in = new In(args[0]);
-        EdgeWeightedGraph G = new EdgeWeightedGraph(in);
-        MasterThread masterThread = new MasterThread("MASTER", G);
+    private static Logger log = Logger.getLogger("Main");
+
+    public static void main(String[] args) throws IOException {
+        // read graph, either in binary format (see GraphFile) or in text format
+        long loadStart = System.nanoTime();
+        Path path = Path.of(args[0]);
+        CompactGraph G;
+        if (GraphFile.isBinary(path)) {
+            G = GraphFile.read(path);
+        } else {
+            G = TextGraphReader.read(path);
+        }
+        log.info("Loaded V=" + G.V() + ", E=" + G.E() + " in " + (System.nanoTime() - loadStart) / 1000000 + " ms");
+        // optional execution mode, e.g. POOLED
+        ExecutionMode mode = args.length > 1 ? ExecutionMode.valueOf(args[1].toUpperCase()) : ExecutionMode.THREAD_PER_VERTEX;
+        MasterThread masterThread;
+        if (mode == ExecutionMode.SHARDED) {
+            // SHARDED <shard> <shards> [base port | shm[:session]], every shard runs on localhost
+            int shard = Integer.parseInt(args[2]);
+            int shards = Integer.parseInt(args[3]);
+            String link = args.length > 4 ? args[4] : "7700";
+            Transport transport;
+            if (link.startsWith("shm")) {
+                String session = link.startsWith("shm:") ? link.substring(4) : "ghs";
+                transport = new SharedMemoryTransport(shard, shards, session);
+            } else {
+                transport = new SocketTransport(shard, shards, "127.0.0.1", Integer.parseInt(link));
+            }
+            masterThread = new MasterThread("MASTER", G, transport);
+        } else {
+            masterThread = new MasterThread("MASTER", G, mode);
+        }
+        // optional output file for the tree, binary if it ends with .bin
+        String out = System.getProperty("ghs.out");
+        if (out != null) {
+            masterThread.setSink(MstSink.file(Path.of(out)));
+        }
         masterThread.start();
     }
 }
@@ -0,0 +1,102 @@
+package ghs.mst;
+
+import java.util.Arrays;
+
+/**
+ * The {@code VertexStates} holds the GHS state of a group of processes in primitive arrays, one entry per process:
+ * level, parent, leader, mwoe, the sender of the mwoe, core edge and the flags.
+ *
+ * <p>The engines that run many processes on few threads give each thread one store for all of its processes, so the
+ * state a thread works on lies in a handful of contiguous arrays. A handler touches the same few entries over and over,
+ * and scanning all of it, e.g. for {@link #describe()}, costs a pass over arrays instead of a walk over every
+ * {@code Process} object. The event-driven engine indexes its store by uid. A worker of the pool indexes its store by
+ * the position of the process in its part of the partition, since the uids of a part are scattered over the graph
+ * and entries of different workers would otherwise share cache lines. The engines with a thread per process give each
+ * process a store of its own, so no two threads ever write to the same cache line.</p>
+ *
+ * <p>An entry is only written by the thread that runs its process. Other threads must only read it after a
+ * synchronization point with that thread, e.g. a barrier.</p>
+ */
+class VertexStates {
+    // flags
+    static final int READY_TO_EXIT = 1;     // handed the edges of my subtree on
+    static final int SELF_KILL = 1 << 1;    // received KILL from the master
+    static final int EXIT_SENT = 1 << 2;
+    static final int CONNECT_SENT = 1 << 3;
+    static final int ACCEPT_RECEIVED = 1 << 4;  // received an Accept in this phase
+    static final int REPORTED = 1 << 5;     // sent my Report, or my ChangeRoot as the leader, in this phase
+    static final int NO_BASIC_EDGES_LEFT = 1 << 6;
+
+    final int[] level;          // level of the component
+    final int[] parent;         // parent in the current component, -1 if none
+    final int[] leader;         // leader of the component
+    final int[] mwoe;           // the mwoe seen so far, -1 if none
+    final int[] mwoeSender;     // id of the process that sent the mwoe
+    final int[] coreEdge;       // core edge, represents the id of the component, -1 if none
+    final byte[] flags;
+
+    /**
+     * Creates a store in which every entry is unset.
+     *
+     * @param size number of processes
+     */
+    VertexStates(int size) {
+        this.level = new int[size];
+        this.parent = new int[size];
+        this.leader = new int[size];
+        this.mwoe = new int[size];
+        this.mwoeSender = new int[size];
+        this.coreEdge = new int[size];
+        this.flags = new byte[size];
+    }
+
+    /**
+     * Resets an entry to the state of a process that has just been spawned, a component of its own.
+     *
+     * @param slot the entry
+     * @param uid  id of the process
+     */
+    void reset(int slot, int uid) {
+        this.level[slot] = 0;
+        this.parent[slot] = -1;
+        this.leader[slot] = uid;
+        this.mwoe[slot] = -1;
+        this.mwoeSender[slot] = uid;
+        this.coreEdge[slot] = -1;
+        this.flags[slot] = 0;
+    }
+
+    int size() {
+        return this.level.length;
+    }
+
+    boolean is(int slot, int flag) {
+        return (this.flags[slot] & flag) != 0;
+    }
+
+    void set(int slot, int flag, boolean on) {
+        this.flags[slot] = (byte) (on ? this.flags[slot] | flag : this.flags[slot] & ~flag);
+    }
+
+    /**
+     * Sums up the entries, for logging.
+     *
+     * @return number of processes per level and number of roots, the processes without a parent; a store with every
+     *         process has one root per component
+     */
+    String describe() {
+        int[] perLevel = new int[1];
+        int roots = 0;
+        for (int slot = 0; slot < this.level.length; slot++) {
+            if (this.level[slot] >= perLevel.length) {
+                perLevel = Arrays.copyOf(perLevel, this.level[slot] + 1);
+            }
+            perLevel[this.level[slot]]++;
+            if (this.parent[slot] == -1) {
+                roots++;
+            }
+        }
+        return this.level.length + " processes, " + roots + " of them roots, per level " +
+                Arrays.toString(perLevel);
+    }
+}
@@ -0,0 +1,168 @@
+package ghs.mst;
+
+import ghs.barrier.RoundBarrier;
+import ghs.graph.Partition;
+import ghs.message.Message;
+import ghs.message.MessagePool;
+import org.apache.log4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+
+/**
+ * The {@code WorkerThread} advances a fixed group of {@code Process} state machines round by round.
+ *
+ * <p>A round is split in the same two halves a {@code Process} goes through when it runs on its own thread: every
+ * process of the group first sends the messages due in the round, then handles the messages it received. The workers
+ * of the pool meet at a barrier after each half, so a process never observes a message before the round it is due
+ * in, no matter which worker its sender belongs to. The {@link RoundCoordinator} of the barrier skips the handle half
+ * and the rounds in which nothing is due.</p>
+ *
+ * <p>Messages to processes of another worker are not delivered right away: the worker collects them in one
+ * {@link MessageBatch} per destination worker during the send half, and each worker unpacks the batches addressed to
+ * it at the start of the handle half. The barrier in between publishes the batches, so no message needs a lock or a
+ * memory fence of its own, and every inbox is only ever written by the worker that owns it.</p>
+ *
+ * <p>Only the processes with work in a round take part in it, see {@link ActiveSet}; the others stay dormant until a
+ * message is due for them.</p>
+ */
+public class WorkerThread extends Thread implements Outbox {
+    private Logger log = Logger.getLogger(this.getName());
+
+    private List<Process> processes;    // processes advanced by this worker
+    private RoundBarrier barrier;       // shared by all workers of the pool
+    private RoundCoordinator coordinator;   // action of the barrier
+    private MasterThread master;        // told if this worker dies
+    private int index;                  // my position in the pool
+    private Process[] network;          // every process, by uid
+    private Partition workers;          // worker of every process
+    private MessageBatch[][] batches;   // shared by all workers of the pool, indexed by source and destination worker
+    private ActiveSet active;           // processes with work in the current round
+    private MessagePool pool = new MessagePool();   // messages of the processes of this worker
+
+    // statistics
+    private long batchedMessages;       // messages received from other workers
+    private long batchCount;            // non-empty batches received from other workers
+    private long barrierNanos;          // time spent waiting at the barrier
+
+    /**
+     * Instantiates a new {@code WorkerThread}.
+     *
+     * @param name        name of the worker
+     * @param index       position of the worker in the pool
+     * @param processes   processes this worker owns
+     * @param network     every process, by uid
+     * @param workers     worker of every process
+     * @param batches     batches between the workers of the pool, indexed by source and destination worker
+     * @param barrier     RoundBarrier every other worker of the pool shares, the worker is party {@code index}
+     * @param coordinator the action of the barrier
+     * @param master      the master, told if this worker dies
+     */
+    WorkerThread(String name, int index, List<Process> processes, Process[] network, Partition workers,
+                 MessageBatch[][] batches, RoundBarrier barrier, RoundCoordinator coordinator, MasterThread master) {
+        super(name);
+        this.index = index;
+        this.processes = processes;
+        this.network = network;
+        this.workers = workers;
+        this.batches = batches;
+        this.barrier = barrier;
+        this.coordinator = coordinator;
+        this.master = master;
+        this.active = new ActiveSet(processes, network.length);
+        for (Process p : processes) {
+            p.setPool(this.pool);
+        }
+    }
+
+    @Override
+    public void send(int receiver, int port, Message m) {
+        this.batches[this.index][this.workers.partOf(receiver)].add(receiver, port, m);
+    }
+
+    /**
+     * Unpacks the batches the other workers sent me in the send half.
+     */
+    private void deliverBatches() {
+        for (MessageBatch[] from : this.batches) {
+            MessageBatch batch = from[this.index];
+            if (batch.size() > 0) {
+                this.batchedMessages += batch.size();
+                this.batchCount++;
+                batch.deliver(this.network, this.active);
+            }
+        }
+    }
+
+    /**
+     * Waits for the other workers of the pool.
+     *
+     * @throws InterruptedException   if interrupted while waiting
+     * @throws BrokenBarrierException if the barrier has been reset
+     */
+    private void await() throws InterruptedException, BrokenBarrierException {
+        long start = System.nanoTime();
+        this.barrier.await(this.index);
+        this.barrierNanos += System.nanoTime() - start;
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (Process p : this.processes) {
+                p.wakeUp();
+            }
+            this.active.begin(this.coordinator.getRound());
+            this.active.activateAll();  // every process handles its wake up message in the first round
+            while (true) {
+                if (this.coordinator.isShuttingDown()) {
+                    this.active.activateAll();  // to handle the KILL of the master
+                }
+                // processes activated by deliveries during the send half only have messages to handle
+                List<Process> active = this.active.getActive();
+                int senders = active.size();
+                for (int i = 0; i < senders; i++) {
+                    active.get(i).sendMessages();
+                }
+                this.coordinator.dueAt(this.active.dueRound());
+                await();
+                // skipped by every worker if nobody sent anything in this round
+                if (this.coordinator.isHandlePhase()) {
+                    if (this.coordinator.isShuttingDown()) {
+                        this.active.activateAll();  // the KILL may have been sent after the check above
+                    }
+                    deliverBatches();
+                    for (Process p : active) {
+                        p.handleMessages();
+                    }
+                    this.coordinator.dueAt(this.active.dueRound());
+                    await();
+                }
+
+                if (this.active.finish(this.coordinator.getRound())) {
+                    log.debug("Shutting down...");
+                    log.info(Process.describeDeliveries(this.processes));
+                    log.info(this.active.describe());
+                    log.info(this.pool);
+                    log.info("Received " + this.batchedMessages + " messages from other workers in " +
+                            this.batchCount + " batches, waited " + this.barrierNanos / 1000000 +
+                            " ms at the barrier.");
+                    if (!this.processes.isEmpty()) {
+                        log.info(this.processes.get(0).getStates().describe());     // the store of this worker
+                    }
+                    this.barrier.reset();   // barrier not needed anymore
+                    break;
+                }
+                this.active.begin(this.coordinator.getRound());
+            }
+        } catch (InterruptedException e) {
+            log.error("Interrupted", e);
+            this.master.engineStopped(e);
+        } catch (BrokenBarrierException e) {
+            log.info("BrokerBarrierException encountered. Expected after all workers have finished execution.");
+        } catch (RuntimeException e) {
+            this.master.engineStopped(e);   // the master breaks the barrier, so the other workers stop too
+            throw e;
+        }
+    }
+}
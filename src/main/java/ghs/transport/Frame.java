@@ -0,0 +1,71 @@
+package ghs.transport;
+
+import java.util.Arrays;
+
+/**
+ * A {@code Frame} is the batch of words one shard sends another in one exchange.
+ *
+ * <p>The transport only moves the words; what they mean is up to the engine that fills the frame. A frame is reused
+ * from one exchange to the next, so it only allocates when it grows.</p>
+ */
+public class Frame {
+    private long[] words = new long[64];
+    private int size;
+
+    /**
+     * Appends a word.
+     *
+     * @param word the word
+     */
+    public void add(long word) {
+        if (this.size == this.words.length) {
+            this.words = Arrays.copyOf(this.words, 2 * this.size);
+        }
+        this.words[this.size++] = word;
+    }
+
+    /**
+     * Gets a word.
+     *
+     * @param i position of the word
+     * @return the word
+     */
+    public long get(int i) {
+        return this.words[i];
+    }
+
+    /**
+     * Replaces a word.
+     *
+     * @param i    position of the word
+     * @param word the new word
+     */
+    public void set(int i, long word) {
+        this.words[i] = word;
+    }
+
+    /**
+     * Gets the number of words in the frame.
+     *
+     * @return number of words
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Gives the transports direct access to the words, the first {@link #size()} of which are valid.
+     *
+     * @return the backing array
+     */
+    long[] words() {
+        return this.words;
+    }
+
+    /**
+     * Empties the frame, keeping its capacity.
+     */
+    public void clear() {
+        this.size = 0;
+    }
+}
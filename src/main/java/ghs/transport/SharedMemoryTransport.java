@@ -0,0 +1,215 @@
+package ghs.transport;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A {@link Transport} through memory-mapped ring files, for shards that run in separate JVMs on the same host.
+ *
+ * <p>Every ordered pair of shards has its own {@link SharedRing}, named {@code <session>-<from>-<to>.ring}, which the
+ * sending shard creates and the receiving shard maps. A frame is written to the ring as its number of words followed by
+ * the words, which is all the protocol there is: the engine puts the round in the frames, and a frame is complete once
+ * its last word has been published. Nothing goes through the kernel once the rings are mapped.</p>
+ *
+ * <p>An exchange writes to all peers and reads from all peers in turns, as far as the rings allow, so a frame larger
+ * than a ring simply streams through it. While no ring makes progress, the shard spins, then yields, then parks for
+ * short intervals.</p>
+ *
+ * <p>The rings live under {@code /dev/shm} if it exists, in the temporary directory otherwise. Each shard deletes the
+ * rings it created when it closes or its JVM shuts down; the rings of a JVM that died without shutting down must be
+ * deleted, or another session name used, before the next run.</p>
+ */
+public class SharedMemoryTransport implements Transport {
+    private static Logger log = Logger.getLogger("Transport");
+    private static final long OPEN_TIMEOUT_MS = 60000;      // how long to wait for the other shards to start
+    private static final int RING_WORDS = 1 << 17;          // 1 MB per ring
+    private static final int SPINS = 1000;
+    private static final int YIELDS = 10000;
+    private static final long PARK_NANOS = 50000;
+
+    private int shard;
+    private int shards;
+    private SharedRing[] outRings;      // to each other shard
+    private SharedRing[] inRings;       // from each other shard
+
+    // per peer exchange state
+    private long[] count = new long[1];
+    private int[] sent;                 // words of the outgoing frame written, -1 before its count
+    private int[] expected;             // words of the incoming frame, -1 until its count is read
+
+    /**
+     * Creates the rings of this shard in the default directory and opens the rings of the other shards.
+     *
+     * @param shard   index of this shard
+     * @param shards  number of shards
+     * @param session name shared by all shards of a run
+     * @throws IOException if the rings can't be set up
+     */
+    public SharedMemoryTransport(int shard, int shards, String session) throws IOException {
+        this(shard, shards, defaultDirectory(), session);
+    }
+
+    /**
+     * Creates the rings of this shard and opens the rings of the other shards.
+     *
+     * @param shard     index of this shard
+     * @param shards    number of shards
+     * @param directory where the ring files live, the same for all shards
+     * @param session   name shared by all shards of a run
+     * @throws IOException if the rings can't be set up
+     */
+    public SharedMemoryTransport(int shard, int shards, Path directory, String session) throws IOException {
+        this.shard = shard;
+        this.shards = shards;
+        this.outRings = new SharedRing[shards];
+        this.inRings = new SharedRing[shards];
+        this.sent = new int[shards];
+        this.expected = new int[shards];
+        for (int peer = 0; peer < shards; peer++) {
+            if (peer != shard) {
+                this.outRings[peer] = SharedRing.create(ringPath(directory, session, shard, peer), RING_WORDS);
+            }
+        }
+        // a shard that is killed mid-run still removes its rings
+        Runtime.getRuntime().addShutdownHook(new Thread(this::deleteRings));
+        long deadline = System.currentTimeMillis() + OPEN_TIMEOUT_MS;
+        for (int peer = 0; peer < shards; peer++) {
+            if (peer != shard) {
+                this.inRings[peer] = SharedRing.open(ringPath(directory, session, peer, shard), deadline);
+            }
+        }
+        log.info("Shard " + shard + " mapped " + 2 * (shards - 1) + " rings under " + directory + ".");
+    }
+
+    /**
+     * Picks {@code /dev/shm} if it exists, the temporary directory otherwise.
+     *
+     * @return directory for the ring files
+     */
+    public static Path defaultDirectory() {
+        Path shm = Path.of("/dev/shm");
+        return Files.isDirectory(shm) ? shm : Path.of(System.getProperty("java.io.tmpdir"));
+    }
+
+    private static Path ringPath(Path directory, String session, int from, int to) {
+        return directory.resolve(session + "-" + from + "-" + to + ".ring");
+    }
+
+    @Override
+    public int getShard() {
+        return this.shard;
+    }
+
+    @Override
+    public int getShards() {
+        return this.shards;
+    }
+
+    @Override
+    public void exchange(Frame[] out, Frame[] in) throws IOException {
+        int pending = 0;
+        for (int peer = 0; peer < this.shards; peer++) {
+            if (peer != this.shard) {
+                this.sent[peer] = -1;
+                this.expected[peer] = -1;
+                in[peer].clear();
+                pending += 2;   // one frame to write, one to read
+            }
+        }
+
+        int idle = 0;
+        while (pending > 0) {
+            boolean progress = false;
+            for (int peer = 0; peer < this.shards; peer++) {
+                if (peer == this.shard) {
+                    continue;
+                }
+                // write
+                Frame frame = out[peer];
+                SharedRing ring = this.outRings[peer];
+                if (this.sent[peer] < 0) {
+                    this.count[0] = frame.size();
+                    if (ring.write(this.count, 0, 1) == 1) {
+                        this.sent[peer] = 0;
+                        progress = true;
+                        if (frame.size() == 0) {
+                            pending--;
+                        }
+                    }
+                } else if (this.sent[peer] < frame.size()) {
+                    int n = ring.write(frame.words(), this.sent[peer], frame.size());
+                    this.sent[peer] += n;
+                    progress |= n > 0;
+                    if (this.sent[peer] == frame.size()) {
+                        pending--;
+                    }
+                }
+
+                // read
+                SharedRing inRing = this.inRings[peer];
+                if (this.expected[peer] < 0) {
+                    long words = inRing.readCount();
+                    if (words < 0 && inRing.isClosed()) {
+                        // the count may have been written between the read above and the close
+                        words = inRing.readCount();
+                        if (words < 0) {
+                            throw new IOException("Shard " + peer + " closed its ring " + inRing.getPath());
+                        }
+                    }
+                    if (words >= 0) {
+                        this.expected[peer] = (int) words;
+                        progress = true;
+                        if (words == 0) {
+                            pending--;
+                        }
+                    }
+                } else if (in[peer].size() < this.expected[peer]) {
+                    int n = inRing.read(in[peer], this.expected[peer] - in[peer].size());
+                    progress |= n > 0;
+                    if (in[peer].size() == this.expected[peer]) {
+                        pending--;
+                    }
+                }
+            }
+
+            // back off while the other shards are busy
+            if (progress) {
+                idle = 0;
+            } else if (++idle < SPINS) {
+                Thread.onSpinWait();
+            } else if (idle < YIELDS) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Deletes the files of the rings this shard created, if they are still there.
+     */
+    private void deleteRings() {
+        for (SharedRing ring : this.outRings) {
+            if (ring != null) {
+                try {
+                    Files.deleteIfExists(ring.getPath());
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (SharedRing ring : this.outRings) {
+            if (ring != null) {
+                ring.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package ghs.transport;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A single-producer/single-consumer ring of {@code long} words in a memory-mapped file, shared by two JVMs on the same
+ * host.
+ *
+ * <p>The file starts with a header, each counter on its own cache line:</p>
+ * <ul>
+ * <li>byte 0: magic number and state, {@link #OPEN} once the producer has set the ring up, {@link #CLOSED} once it is
+ * gone</li>
+ * <li>byte 8: capacity in words, a power of two</li>
+ * <li>byte 64: words written so far, only written by the producer</li>
+ * <li>byte 128: words read so far, only written by the consumer</li>
+ * </ul>
+ * <p>The words follow from byte 192. A counter is published with a release store and read with an acquire load, so
+ * the words written before a counter moves are visible to the other side once it sees the new count. The words are in
+ * the native byte order, both ends run on the same host.</p>
+ */
+class SharedRing {
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    static final long OPEN = 0x4748535200000001L;      // "GHSR", state 1
+    static final long CLOSED = 0x4748535200000002L;    // "GHSR", state 2
+
+    private static final int STATE = 0;
+    private static final int CAPACITY = 8;
+    private static final int WRITTEN = 64;
+    private static final int READ = 128;
+    private static final int DATA = 192;
+
+    private MappedByteBuffer buffer;
+    private Path path;
+    private long mask;          // capacity - 1
+
+    // cached counters, to touch the other side's cache line only when needed
+    private long written;
+    private long read;
+    private long limit;         // producer: read + capacity last seen, consumer: written last seen
+
+    private SharedRing(Path path, MappedByteBuffer buffer) {
+        this.path = path;
+        this.buffer = buffer;
+        this.buffer.order(ByteOrder.nativeOrder());
+        this.mask = this.buffer.getLong(CAPACITY) - 1;
+    }
+
+    /**
+     * Creates a ring as its producer. The file appears under its name only once it is set up.
+     *
+     * @param path     the file, replaced if it exists
+     * @param capacity capacity in words, a power of two
+     * @return SharedRing instance
+     * @throws IOException if the file can't be created
+     */
+    static SharedRing create(Path path, int capacity) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, DATA + 8L * capacity);
+        }
+        buffer.order(ByteOrder.nativeOrder());
+        buffer.putLong(CAPACITY, capacity);
+        LONGS.setRelease(buffer, STATE, OPEN);
+        Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        SharedRing ring = new SharedRing(path, buffer);
+        ring.limit = capacity;
+        return ring;
+    }
+
+    /**
+     * Opens a ring as its consumer, waiting for the producer to create it.
+     *
+     * @param path     the file
+     * @param deadline {@code System.currentTimeMillis()} after which to give up
+     * @return SharedRing instance
+     * @throws IOException if the ring doesn't show up in time
+     */
+    static SharedRing open(Path path, long deadline) throws IOException {
+        while (!Files.exists(path)) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IOException("Timed out waiting for " + path);
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new IOException("Interrupted while waiting for " + path, e);
+            }
+        }
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        }
+        if ((long) LONGS.getAcquire(buffer, STATE) != OPEN) {
+            throw new IOException(path + " is not an open ring");
+        }
+        return new SharedRing(path, buffer);
+    }
+
+    Path getPath() {
+        return this.path;
+    }
+
+    /**
+     * Checks whether the producer has closed the ring.
+     *
+     * @return true if closed
+     */
+    boolean isClosed() {
+        return (long) LONGS.getAcquire(this.buffer, STATE) == CLOSED;
+    }
+
+    /**
+     * Writes as many words as fit. Producer only.
+     *
+     * @param words the words
+     * @param from  first word to write
+     * @param to    one past the last word to write
+     * @return number of words written, possibly 0 if the ring is full
+     */
+    int write(long[] words, int from, int to) {
+        if (this.written + (to - from) > this.limit) {
+            this.limit = (long) LONGS.getAcquire(this.buffer, READ) + this.mask + 1;
+        }
+        int n = (int) Math.min(to - from, this.limit - this.written);
+        for (int i = 0; i < n; i++) {
+            this.buffer.putLong(DATA + (int) (((this.written + i) & this.mask) << 3), words[from + i]);
+        }
+        if (n > 0) {
+            this.written += n;
+            LONGS.setRelease(this.buffer, WRITTEN, this.written);
+        }
+        return n;
+    }
+
+    /**
+     * Reads a single word that is known to be non-negative, e.g. a count. Consumer only.
+     *
+     * @return the word, or -1 if the ring is empty
+     */
+    long readCount() {
+        if (this.read == this.limit) {
+            this.limit = (long) LONGS.getAcquire(this.buffer, WRITTEN);
+            if (this.read == this.limit) {
+                return -1;
+            }
+        }
+        long word = this.buffer.getLong(DATA + (int) ((this.read & this.mask) << 3));
+        this.read++;
+        LONGS.setRelease(this.buffer, READ, this.read);
+        return word;
+    }
+
+    /**
+     * Reads as many words as are available, up to a maximum. Consumer only.
+     *
+     * @param into  frame to append the words to
+     * @param count maximum number of words to read
+     * @return number of words read, possibly 0 if the ring is empty
+     */
+    int read(Frame into, int count) {
+        if (this.read + count > this.limit) {
+            this.limit = (long) LONGS.getAcquire(this.buffer, WRITTEN);
+        }
+        int n = (int) Math.min(count, this.limit - this.read);
+        for (int i = 0; i < n; i++) {
+            into.add(this.buffer.getLong(DATA + (int) (((this.read + i) & this.mask) << 3)));
+        }
+        if (n > 0) {
+            this.read += n;
+            LONGS.setRelease(this.buffer, READ, this.read);
+        }
+        return n;
+    }
+
+    /**
+     * Marks the ring closed, as its producer, and deletes its file. The consumer keeps its mapping.
+     *
+     * @throws IOException if the file can't be deleted
+     */
+    void close() throws IOException {
+        LONGS.setRelease(this.buffer, STATE, CLOSED);
+        Files.deleteIfExists(this.path);
+    }
+}
@@ -0,0 +1,228 @@
+package ghs.transport;
+
+import org.apache.log4j.Logger;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A {@link Transport} over TCP connections between the shards, e.g. several JVMs on one machine.
+ *
+ * <p>Shard {@code i} listens on {@code basePort + i}, connects to every shard with a lower index and accepts a
+ * connection from every shard with a higher index, so each pair of shards shares one connection. Exchanges run on
+ * non-blocking channels and a {@code Selector}: frames to all peers are written while frames from all peers are read,
+ * so two shards sending each other large frames never wait on each other's full socket buffers.</p>
+ *
+ * <p>On the wire, a frame is its number of words as an {@code int} followed by the words.</p>
+ */
+public class SocketTransport implements Transport {
+    private static Logger log = Logger.getLogger("Transport");
+    private static final long CONNECT_TIMEOUT_MS = 60000;     // how long to wait for the other shards to start
+
+    private int shard;
+    private int shards;
+    private SocketChannel[] peers;      // connection to each other shard, null for this shard
+    private Selector selector;
+
+    // per peer exchange state
+    private ByteBuffer[] outgoing;
+    private ByteBuffer[] incoming;
+    private boolean[] headerRead;
+
+    /**
+     * Connects this shard to all the others.
+     *
+     * @param shard    index of this shard
+     * @param shards   number of shards
+     * @param host     host every shard listens on
+     * @param basePort port of shard 0, shard {@code i} listens on {@code basePort + i}
+     * @throws IOException if the shards can't be connected
+     */
+    public SocketTransport(int shard, int shards, String host, int basePort) throws IOException {
+        this.shard = shard;
+        this.shards = shards;
+        this.peers = new SocketChannel[shards];
+        this.outgoing = new ByteBuffer[shards];
+        this.incoming = new ByteBuffer[shards];
+        this.headerRead = new boolean[shards];
+
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            server.bind(new InetSocketAddress(host, basePort + shard));
+            for (int peer = 0; peer < shard; peer++) {
+                this.peers[peer] = connect(new InetSocketAddress(host, basePort + peer));
+                ByteBuffer hello = ByteBuffer.allocate(4).putInt(0, shard);
+                while (hello.hasRemaining()) {
+                    this.peers[peer].write(hello);
+                }
+            }
+            for (int accepted = shard + 1; accepted < shards; accepted++) {
+                SocketChannel channel = server.accept();
+                ByteBuffer hello = ByteBuffer.allocate(4);
+                while (hello.hasRemaining()) {
+                    if (channel.read(hello) < 0) {
+                        throw new EOFException("Peer closed the connection before saying hello");
+                    }
+                }
+                this.peers[hello.getInt(0)] = channel;
+            }
+        }
+
+        this.selector = Selector.open();
+        for (int peer = 0; peer < shards; peer++) {
+            if (peer != shard) {
+                this.peers[peer].setOption(StandardSocketOptions.TCP_NODELAY, true);
+                this.peers[peer].configureBlocking(false);
+                this.peers[peer].register(this.selector, 0, peer);
+                this.outgoing[peer] = ByteBuffer.allocateDirect(1 << 16);
+                this.incoming[peer] = ByteBuffer.allocateDirect(1 << 16);
+            }
+        }
+        log.info("Shard " + shard + " connected to " + (shards - 1) + " peers.");
+    }
+
+    /**
+     * Connects to a shard, waiting for it to come up.
+     *
+     * @param address where the shard listens
+     * @return the connected channel
+     * @throws IOException if the shard doesn't come up in time
+     */
+    private static SocketChannel connect(InetSocketAddress address) throws IOException {
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MS;
+        while (true) {
+            try {
+                return SocketChannel.open(address);
+            } catch (ConnectException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException ie) {
+                    throw new IOException("Interrupted while connecting to " + address, ie);
+                }
+            }
+        }
+    }
+
+    @Override
+    public int getShard() {
+        return this.shard;
+    }
+
+    @Override
+    public int getShards() {
+        return this.shards;
+    }
+
+    /**
+     * Makes sure a buffer can take a number of bytes, replacing it by a larger one if needed.
+     *
+     * @param buffer the buffer, cleared
+     * @param bytes  number of bytes needed
+     * @return the buffer or its replacement, cleared
+     */
+    private static ByteBuffer ensure(ByteBuffer buffer, int bytes) {
+        if (buffer.capacity() >= bytes) {
+            return buffer;
+        }
+        return ByteBuffer.allocateDirect(Math.max(bytes, 2 * buffer.capacity()));
+    }
+
+    @Override
+    public void exchange(Frame[] out, Frame[] in) throws IOException {
+        int pending = 0;
+        for (int peer = 0; peer < this.shards; peer++) {
+            if (peer == this.shard) {
+                continue;
+            }
+            Frame frame = out[peer];
+            ByteBuffer buffer = ensure(this.outgoing[peer], 4 + 8 * frame.size());
+            buffer.clear();
+            buffer.putInt(frame.size());
+            for (int i = 0; i < frame.size(); i++) {
+                buffer.putLong(frame.get(i));
+            }
+            buffer.flip();
+            this.outgoing[peer] = buffer;
+
+            this.incoming[peer].clear().limit(4);
+            this.headerRead[peer] = false;
+            in[peer].clear();
+
+            this.peers[peer].keyFor(this.selector).interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            pending += 2;   // one frame to write, one to read
+        }
+
+        while (pending > 0) {
+            this.selector.select();
+            for (SelectionKey key : this.selector.selectedKeys()) {
+                int peer = (Integer) key.attachment();
+                SocketChannel channel = (SocketChannel) key.channel();
+                if (key.isValid() && key.isWritable()) {
+                    channel.write(this.outgoing[peer]);
+                    if (!this.outgoing[peer].hasRemaining()) {
+                        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                        pending--;
+                    }
+                }
+                if (key.isValid() && key.isReadable()) {
+                    if (channel.read(this.incoming[peer]) < 0) {
+                        throw new EOFException("Shard " + peer + " closed the connection");
+                    }
+                    if (!this.incoming[peer].hasRemaining() && readFrame(peer, in[peer])) {
+                        key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                        pending--;
+                    }
+                }
+            }
+            this.selector.selectedKeys().clear();
+        }
+    }
+
+    /**
+     * Advances the frame read from a peer once its buffer is full.
+     *
+     * @param peer  the peer
+     * @param frame frame to decode into
+     * @return true if the whole frame has been read
+     */
+    private boolean readFrame(int peer, Frame frame) {
+        ByteBuffer buffer = this.incoming[peer];
+        if (!this.headerRead[peer]) {
+            int words = buffer.getInt(0);
+            this.headerRead[peer] = true;
+            if (words > 0) {
+                buffer = ensure(buffer, 8 * words);
+                buffer.clear().limit(8 * words);
+                this.incoming[peer] = buffer;
+                return false;
+            }
+            return true;
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            frame.add(buffer.getLong());
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.selector.close();
+        for (SocketChannel peer : this.peers) {
+            if (peer != null) {
+                peer.close();
+            }
+        }
+    }
+}
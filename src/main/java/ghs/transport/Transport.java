@@ -0,0 +1,36 @@
+package ghs.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A {@code Transport} connects the shards of a simulation that is split over several JVMs.
+ *
+ * <p>Shards communicate in bulk-synchronous steps: in an exchange, every shard sends one {@link Frame} to each of the
+ * others and waits for the frame each of them sent. An exchange therefore also acts as a barrier across shards.</p>
+ */
+public interface Transport extends Closeable {
+    /**
+     * Gets the index of this shard.
+     *
+     * @return shard index, in {@code 0..getShards()-1}
+     */
+    int getShard();
+
+    /**
+     * Gets the number of shards.
+     *
+     * @return number of shards
+     */
+    int getShards();
+
+    /**
+     * Sends {@code out[peer]} to every other shard and receives into {@code in[peer]} the frame that shard sent.
+     * Blocks until every frame has been sent and received. The entries for this shard are left alone.
+     *
+     * @param out frames to send, by shard
+     * @param in  frames to receive into, by shard
+     * @throws IOException if a peer can't be reached
+     */
+    void exchange(Frame[] out, Frame[] in) throws IOException;
+}